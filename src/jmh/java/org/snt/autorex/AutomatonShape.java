@@ -0,0 +1,119 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.BasicAutomata;
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * deterministic benchmark inputs of a given shape and size
+ */
+public enum AutomatonShape {
+
+    /** a single string */
+    CHAIN {
+        @Override
+        Automaton create(int size) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < size; i++)
+                sb.append((char) ('a' + i % 26));
+            return BasicAutomata.makeString(sb.toString());
+        }
+    },
+
+    /** a finite set of random words */
+    WORDS {
+        @Override
+        Automaton create(int size) {
+            Random rnd = new Random(size);
+            String[] words = new String[size];
+            for (int i = 0; i < size; i++) {
+                StringBuilder sb = new StringBuilder();
+                for (int l = 4 + rnd.nextInt(8); l > 0; l--)
+                    sb.append("acgt".charAt(rnd.nextInt(4)));
+                words[i] = sb.toString();
+            }
+            Arrays.sort(words);
+            Automaton a = BasicAutomata.makeStringUnion(words);
+            a.minimize();
+            return a;
+        }
+    },
+
+    /** a sequence of loops separated by single characters */
+    LOOPS {
+        @Override
+        Automaton create(int size) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < size / 2; i++) {
+                sb.append((char) ('a' + i % 26)).append('(')
+                        .append((char) ('A' + i % 26))
+                        .append((char) ('0' + i % 10))
+                        .append(")*");
+            }
+            Automaton a = new RegExp(sb.toString()).toAutomaton();
+            a.minimize();
+            return a;
+        }
+    },
+
+    /**
+     * a random dfa whose cycles are local, so that the size of the
+     * regular expression stays polynomial
+     */
+    RANDOM {
+        @Override
+        Automaton create(int size) {
+            Random rnd = new Random(size);
+            State[] states = new State[size];
+            for (int i = 0; i < size; i++) {
+                states[i] = new State();
+                states[i].setAccept(rnd.nextInt(4) == 0);
+            }
+            for (int i = 0; i < size; i++) {
+                states[i].addTransition(new Transition('a',
+                        states[Math.min(i + 1 + rnd.nextInt(2), size - 1)]));
+                states[i].addTransition(new Transition('b',
+                        states[Math.max(i - rnd.nextInt(3), 0)]));
+            }
+            states[size - 1].setAccept(true);
+            Automaton a = new Automaton();
+            a.setInitialState(states[0]);
+            a.setDeterministic(true);
+            a.minimize();
+            return a;
+        }
+    };
+
+    abstract Automaton create(int size);
+}
@@ -0,0 +1,131 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snt.autorex.autograph.Gnfa;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks for the individual phases of the conversion
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConversionBenchmark {
+
+    @Param({"CHAIN", "WORDS", "LOOPS", "RANDOM"})
+    public AutomatonShape shape;
+
+    @Param({"8", "32", "128"})
+    public int size;
+
+    private Automaton auto;
+    private String raw;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        auto = shape.create(size);
+        // the label of the last edge is the input of the post processing
+        Gnfa g = Converter.INSTANCE.getGnfaFromAutomaton(auto);
+        StateEliminator.INSTANCE.eliminate(g);
+        raw = g.edgeSet().iterator().next().getLabel().toString();
+    }
+
+    /**
+     * elimination consumes its input, hence every invocation gets a fresh
+     * gnfa
+     */
+    @State(Scope.Thread)
+    public static class FreshGnfa {
+        Gnfa gnfa;
+
+        @Setup(Level.Invocation)
+        public void setup(ConversionBenchmark b) {
+            gnfa = Converter.INSTANCE.getGnfaFromAutomaton(b.auto);
+        }
+    }
+
+    @Benchmark
+    public Gnfa convert() {
+        return Converter.INSTANCE.getGnfaFromAutomaton(auto);
+    }
+
+    @Benchmark
+    public Gnfa handleTrivialCases(FreshGnfa g) {
+        StateEliminator.INSTANCE.handleTrivialCases(g.gnfa);
+        return g.gnfa;
+    }
+
+    @Benchmark
+    public String eliminate(FreshGnfa g) {
+        return StateEliminator.INSTANCE.eliminate(g.gnfa);
+    }
+
+    @Benchmark
+    public String eliminateParallel(FreshGnfa g) {
+        return StateEliminator.INSTANCE.eliminateParallel(g.gnfa, ForkJoinPool
+                .commonPool());
+    }
+
+    @Benchmark
+    public String eliminateMatrix(FreshGnfa g) {
+        return KleeneEliminator.INSTANCE.eliminate(g.gnfa);
+    }
+
+    @Benchmark
+    public String solveEquations(FreshGnfa g) {
+        return EquationSolver.INSTANCE.solve(g.gnfa);
+    }
+
+    @Benchmark
+    public String postProcess() {
+        return StateEliminator.INSTANCE.postProcess(raw);
+    }
+
+    @Benchmark
+    public String getRegexFromAutomaton() {
+        return Autorex.getRegexFromAutomaton(auto);
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snt.autorex.autograph.Transition;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks for the state and transition lookups on the elimination hot
+ * path; legacy* replays the former transition hash, which concatenated the
+ * dot labels of both endpoints on every lookup
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashLookupBenchmark {
+
+    // the former hashCode and equals of a transition
+    private static final class LegacyKey {
+
+        private final org.snt.autorex.autograph.State src;
+        private final org.snt.autorex.autograph.State dst;
+
+        LegacyKey(Transition t) {
+            this.src = t.getSource();
+            this.dst = t.getTarget();
+        }
+
+        @Override
+        public int hashCode() {
+            return String.valueOf(src.getDotLabel() + dst.getDotLabel())
+                    .hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LegacyKey))
+                return false;
+            LegacyKey k = (LegacyKey) o;
+            return this.src.equals(k.src) && this.dst.equals(k.dst);
+        }
+    }
+
+    @Param({"4000"})
+    public int states;
+
+    @Param({"20000"})
+    public int transitions;
+
+    private org.snt.autorex.autograph.State [] nodes;
+    private Transition [] probes;
+    private LegacyKey [] legacyProbes;
+    private Set<Transition> set;
+    private Set<LegacyKey> legacySet;
+    private Map<org.snt.autorex.autograph.State, Integer> map;
+    private int idx;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(42);
+        nodes = new org.snt.autorex.autograph.State[states];
+        map = new HashMap<>();
+        for (int i = 0; i < states; i++) {
+            nodes[i] = new org.snt.autorex.autograph.State(org.snt.autorex
+                    .autograph.State.Kind.NORMAL, i + 1);
+            map.put(nodes[i], i);
+        }
+
+        set = new HashSet<>();
+        legacySet = new HashSet<>();
+        probes = new Transition[transitions];
+        legacyProbes = new LegacyKey[transitions];
+        for (int i = 0; i < transitions; i++) {
+            Transition t = new Transition(nodes[rnd.nextInt(states)],
+                    nodes[rnd.nextInt(states)], Transition.Kind.MATCH);
+            set.add(t);
+            legacySet.add(new LegacyKey(t));
+            // equal but distinct probes, as created during elimination
+            probes[i] = new Transition(t.getSource(), t.getTarget(),
+                    Transition.Kind.MATCH);
+            legacyProbes[i] = new LegacyKey(probes[i]);
+        }
+    }
+
+    private int next() {
+        idx = idx + 1 == transitions ? 0 : idx + 1;
+        return idx;
+    }
+
+    @Benchmark
+    public boolean transitionContains() {
+        return set.contains(probes[next()]);
+    }
+
+    @Benchmark
+    public boolean legacyTransitionContains() {
+        return legacySet.contains(legacyProbes[next()]);
+    }
+
+    @Benchmark
+    public Integer stateLookup() {
+        return map.get(probes[next()].getSource());
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares the single pass cleanup with the former regex based one on
+ * large outputs
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PostProcessBenchmark {
+
+    /** the approximate length of the input */
+    @Param({"16384", "262144", "4194304"})
+    public int length;
+
+    /** whether the input contains removable empty words */
+    @Param({"false", "true"})
+    public boolean noise;
+
+    private String input;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String unit = "(" + Autorex.getRegexFromAutomaton(AutomatonShape
+                .RANDOM.create(128)) + ")";
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            sb.append(unit);
+            if (noise)
+                sb.append(".{0}");
+        }
+        input = sb.toString();
+    }
+
+    @Benchmark
+    public String scanner() {
+        return StateEliminator.INSTANCE.postProcess(input);
+    }
+
+    @Benchmark
+    public String regex() {
+        return input.replaceAll("\\)\\(\\.\\{0(,0)?\\}\\)", ")")
+                .replaceAll("\\)\\.\\{0(,0)?\\}", ")")
+                .replaceAll("\\(\\.\\{0(,0)?\\}\\)\\(", "(")
+                .replaceAll("\\.\\{0(,0)?\\}\\(", "(")
+                .replaceAll("\\*\\(\\.\\{0(,0)?\\}\\)", "*");
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import org.snt.autorex.regex.RegexFactory;
+import org.snt.autorex.regex.RegexNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Direct conversion of automata that accept a finite language. If the
+ * states that can reach an accepting state form a dag, the regular
+ * expression of every state is the union of its outgoing labels followed by
+ * the regular expressions of their targets, which is computed in reverse
+ * topological order. Targets with the same regular expression share a
+ * single character class, and the hash-consed factory shares the common
+ * suffixes. Computing the label takes time linear in the automaton (plus
+ * sorting the character intervals), but the text of a label with many
+ * shared suffixes can still be much larger than the automaton.
+ */
+public enum AcyclicConverter {
+
+    INSTANCE;
+
+    /** the regular expression of the empty language */
+    public static final String EMPTY = "#";
+
+    /**
+     * @param a an automaton
+     * @param ltrans a label translator
+     * @return the regular expression of the language of a or null if the
+     * live part of a contains a cycle
+     */
+    public String getRegexFromAutomaton(Automaton a, LabelTranslator ltrans) {
+        return getRegexFromAutomaton(a, ltrans, ConversionListener.NOOP);
+    }
+
+    /**
+     * @param a an automaton
+     * @param ltrans a label translator
+     * @param listener receives measurements
+     * @return the regular expression of the language of a or null if the
+     * live part of a contains a cycle
+     */
+    public String getRegexFromAutomaton(Automaton a, LabelTranslator ltrans,
+                                        ConversionListener listener) {
+        long start = listener != ConversionListener.NOOP ? System.nanoTime()
+                : 0L;
+
+        List<State> states = Converter.getStatesInBfsOrder(a
+                .getInitialState());
+        int n = states.size();
+        Map<State, Integer> num = new HashMap<>(2 * n);
+        for (int i = 0; i < n; i++)
+            num.put(states.get(i), i);
+
+        Transition [][] trans = new Transition[n][];
+        int [][] dst = new int[n][];
+        for (int i = 0; i < n; i++) {
+            trans[i] = states.get(i).getSortedTransitions(false).toArray(new
+                    Transition[0]);
+            dst[i] = new int[trans[i].length];
+            for (int k = 0; k < trans[i].length; k++)
+                dst[i][k] = num.get(trans[i][k].getDest());
+        }
+
+        boolean [] live = Converter.getLiveStates(states, dst);
+        if (!live[0])
+            return EMPTY;
+
+        int [] topo = getTopologicalOrder(live, dst);
+        if (topo == null)
+            return null;
+
+        Alphabet alpha = new Alphabet(states, LabelAppender.of(ltrans));
+        RegexFactory f = new RegexFactory();
+        RegexNode [] rex = new RegexNode[n];
+        Map<RegexNode, long[]> groups = new LinkedHashMap<>();
+        List<RegexNode> alts = new ArrayList<>();
+
+        for (int x = topo.length - 1; x >= 0; x--) {
+            int v = topo[x];
+            groups.clear();
+            for (int k = 0; k < trans[v].length; k++) {
+                RegexNode sfx = rex[dst[v][k]];
+                if (sfx != null)
+                    alpha.addClasses(groups.computeIfAbsent(sfx, s -> alpha
+                            .newSet()), trans[v][k]);
+            }
+
+            alts.clear();
+            for (Map.Entry<RegexNode, long[]> e : groups.entrySet())
+                alts.add(f.concat(f.charClass(alpha, e.getValue()), e.getKey
+                        ()));
+            if (states.get(v).isAccept())
+                alts.add(RegexNode.EPSILON);
+
+            RegexNode lbl = alts.get(alts.size() - 1);
+            for (int k = alts.size() - 2; k >= 0; k--)
+                lbl = f.union(alts.get(k), lbl);
+            rex[v] = lbl;
+        }
+
+        return StateEliminator.INSTANCE.finish(f, rex[0], start, listener);
+    }
+
+    /**
+     * Kahn's algorithm on the live states
+     * @return the live states in topological order or null if they contain
+     * a cycle
+     */
+    private static int [] getTopologicalOrder(boolean [] live, int [][] dst) {
+        int n = live.length;
+        int [] deg = new int[n];
+        int m = 0;
+        for (int v = 0; v < n; v++) {
+            if (!live[v])
+                continue;
+            m++;
+            for (int d : dst[v]) {
+                if (live[d])
+                    deg[d]++;
+            }
+        }
+
+        int [] order = new int[m];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (live[v] && deg[v] == 0)
+                order[tail++] = v;
+        }
+        while (head < tail) {
+            int v = order[head++];
+            for (int d : dst[v]) {
+                if (live[d] && --deg[d] == 0)
+                    order[tail++] = d;
+            }
+        }
+        return tail == m ? order : null;
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import org.snt.autorex.regex.CharClassRenderer;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The coarsest partition of the characters used by the transitions of an
+ * automaton: two characters are in the same class iff they are matched by
+ * exactly the same transitions. Every transition is thus a set of classes
+ * that is represented as a bitset of class ids.
+ */
+final class Alphabet implements CharClassRenderer {
+
+    // elementary interval k is [bounds[k], bounds[k + 1] - 1]
+    private final int[] bounds;
+    // the class of elementary interval k, -1 if no transition matches it
+    private final int[] classOf;
+    private final int size;
+    private final LabelAppender appender;
+
+    /**
+     * @param states the states whose transitions are partitioned
+     * @param appender writes the label of the intervals of a set of classes
+     */
+    Alphabet(Collection<State> states, LabelAppender appender) {
+        this.appender = appender;
+
+        int n = 0;
+        for (State s : states)
+            n += s.getTransitions().size();
+
+        int[] pts = new int[2 * n];
+        int i = 0;
+        for (State s : states) {
+            for (Transition t : s.getTransitions()) {
+                pts[i++] = t.getMin();
+                pts[i++] = t.getMax() + 1;
+            }
+        }
+        Arrays.sort(pts);
+        int m = 0;
+        for (int k = 0; k < pts.length; k++) {
+            if (m == 0 || pts[k] != pts[m - 1])
+                pts[m++] = pts[k];
+        }
+        bounds = Arrays.copyOf(pts, m);
+
+        // partition refinement: every transition splits the classes of the
+        // intervals it covers, hence two intervals end up in the same class
+        // iff they are covered by exactly the same transitions; class 0 is
+        // not covered at all
+        int[] cls = new int[Math.max(m - 1, 0)];
+        int[] split = new int[16];
+        int[] stamp = new int[16];
+        int next = 1;
+        int tid = 0;
+        for (State s : states) {
+            for (Transition t : s.getTransitions()) {
+                tid++;
+                for (int k = indexOf(t.getMin()); k < cls.length && bounds[k]
+                        <= t.getMax(); k++) {
+                    int c = cls[k];
+                    if (stamp[c] != tid) {
+                        stamp[c] = tid;
+                        split[c] = next++;
+                        if (next > stamp.length) {
+                            stamp = Arrays.copyOf(stamp, 2 * next);
+                            split = Arrays.copyOf(split, 2 * next);
+                        }
+                    }
+                    cls[k] = split[c];
+                }
+            }
+        }
+
+        // number the classes densely in the order of their intervals
+        classOf = cls;
+        int[] ids = new int[next];
+        int count = 0;
+        for (int k = 0; k < classOf.length; k++) {
+            int c = classOf[k];
+            if (c == 0) {
+                classOf[k] = -1;
+            } else {
+                if (ids[c] == 0)
+                    ids[c] = ++count;
+                classOf[k] = ids[c] - 1;
+            }
+        }
+        size = count;
+    }
+
+    private int indexOf(int c) {
+        return Arrays.binarySearch(bounds, c);
+    }
+
+    /**
+     * @return the number of classes
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return an empty set of classes
+     */
+    long[] newSet() {
+        return new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * add the classes of t to set
+     * @param set a set of classes
+     * @param t a transition of one of the partitioned states
+     */
+    void addClasses(long[] set, Transition t) {
+        for (int k = indexOf(t.getMin()); k < classOf.length && bounds[k] <=
+                t.getMax(); k++) {
+            int c = classOf[k];
+            set[c >>> 6] |= 1L << c;
+        }
+    }
+
+    @Override
+    public String render(long[] set) {
+        StringBuilder sb = new StringBuilder();
+        appendTo(sb, set);
+        return sb.toString();
+    }
+
+    @Override
+    public void appendTo(StringBuilder sb, long[] set) {
+        // count the maximal intervals first, the buffers are local such
+        // that concurrent renderings do not block each other
+        int n = 0;
+        int end = -1;
+        for (int k = 0; k < classOf.length; k++) {
+            if (contains(set, k)) {
+                if (bounds[k] != end)
+                    n++;
+                end = bounds[k + 1];
+            }
+        }
+
+        char[] min = new char[n];
+        char[] max = new char[n];
+        int i = 0;
+        for (int k = 0; k < classOf.length; k++) {
+            if (!contains(set, k))
+                continue;
+            if (i > 0 && bounds[k] == max[i - 1] + 1) {
+                max[i - 1] = (char) (bounds[k + 1] - 1);
+            } else {
+                min[i] = (char) bounds[k];
+                max[i] = (char) (bounds[k + 1] - 1);
+                i++;
+            }
+        }
+        appender.appendLabel(sb, min, max, n);
+    }
+
+    private boolean contains(long[] set, int k) {
+        int c = classOf[k];
+        return c >= 0 && (set[c >>> 6] & (1L << c)) != 0L;
+    }
+}
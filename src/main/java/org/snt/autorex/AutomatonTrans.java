@@ -29,6 +29,7 @@ package org.snt.autorex;
 import dk.brics.automaton.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snt.autorex.utils.CaseFolding;
 
 import java.util.*;
 
@@ -91,6 +92,10 @@ public class AutomatonTrans {
         public boolean isSubstring() {return this == SUBSTRING;}
     }
 
+    // finite languages with at most that many words are transformed with
+    // a suffix automaton
+    static final int SUFFIX_AUTOMATON_WORD_LIMIT = 1 << 12;
+
     private Kind kind = Kind.NORMAL;
 
     protected Automaton auto = null;
@@ -98,6 +103,8 @@ public class AutomatonTrans {
     protected Map<State, Integer> statenumber = new HashMap<>();
     protected State init = null;
     protected LabelTranslator ltrans = null;
+    // the lengths of the words of auto, computed on demand
+    private LengthSet lengths = null;
 
     HashMap<State, HashSet<FullTransition>> incoming = new HashMap<>();
     HashMap<State, HashSet<FullTransition>> outgoing = new HashMap<>();
@@ -152,6 +159,7 @@ public class AutomatonTrans {
     private void prepare() {
         // get all transitions
         reset();
+        lengths = null;
         for (State s : auto.getStates()) {
             for (Transition t : s.getTransitions()) {
                 FullTransition ft = new FullTransition(s, t, t.getDest(), ltrans);
@@ -196,106 +204,136 @@ public class AutomatonTrans {
 
         boolean binit = init.isAccept();
 
+        // a fresh initial state, the old one might be reachable again and
+        // must not lead back to the epsilon transitions
+        State sinit = new State();
         Set<StatePair> spairs = new HashSet<StatePair>();
         for (State s : auto.getStates()) {
-            if (!s.equals(auto.getInitialState())) {
-                spairs.add(new StatePair(auto.getInitialState(), s));
-            }
+            spairs.add(new StatePair(sinit, s));
         }
+        auto.setInitialState(sinit);
         auto.addEpsilons(spairs);
-        init.setAccept(binit);
+        sinit.setAccept(binit);
+        init = sinit;
     }
 
 
     protected void convertToCamelCaseAutomaton() {
 
-        Set<Transition> handled = new HashSet<Transition>();
+        boolean det = true;
+        List<Transition> folded = new ArrayList<>();
+        Map<State, List<int[]>> ranges = new LinkedHashMap<>();
 
         for (State s : auto.getStates()) {
 
-            Set<Transition> transitions = new HashSet<Transition>();
-
-            transitions.addAll(s.getTransitions());
-
-            for (Transition t : transitions) {
-
-                if (handled.contains(t))
-                    continue;
-
-                char min = t.getMin();
-                char max = t.getMax();
+            // the folded ranges per destination
+            ranges.clear();
+            for (Transition t : s.getSortedTransitions(false)) {
+                int [] iv = CaseFolding.fold(t.getMin(), t.getMax());
+                List<int[]> l = ranges.computeIfAbsent(t.getDest(), k -> new
+                        ArrayList<>());
+                for (int i = 0; i < iv.length; i += 2)
+                    l.add(new int[]{iv[i], iv[i + 1]});
+            }
 
-                if (CharUtils.isLowerCase(min)) {
-                    min = Character.toUpperCase(min);
-                } else if (CharUtils.isUpperCase(min)) {
-                    min = Character.toLowerCase(min);
+            folded.clear();
+            for (Map.Entry<State, List<int[]>> e : ranges.entrySet()) {
+                List<int[]> l = e.getValue();
+                l.sort((a, b) -> Integer.compare(a[0], b[0]));
+                int lo = l.get(0)[0];
+                int hi = l.get(0)[1];
+                for (int [] r : l) {
+                    if (r[0] > hi + 1) {
+                        folded.add(new Transition((char) lo, (char) hi, e
+                                .getKey()));
+                        lo = r[0];
+                    }
+                    hi = Math.max(hi, r[1]);
                 }
+                folded.add(new Transition((char) lo, (char) hi, e.getKey()));
+            }
 
-                if (CharUtils.isLowerCase(max)) {
-                    max = Character.toUpperCase(min);
-                } else if (CharUtils.isUpperCase(max)) {
-                    max = Character.toLowerCase(min);
-                }
+            // folding might let transitions to different states overlap
+            folded.sort((a, b) -> Character.compare(a.getMin(), b.getMin()));
+            for (int i = 1; i < folded.size() && det; i++)
+                det = folded.get(i).getMin() > folded.get(i - 1).getMax();
 
-                Transition tnew = new Transition(min, max, t.getDest());
-                s.addTransition(tnew);
-                handled.add(tnew);
-                handled.add(t);
-            }
+            s.getTransitions().clear();
+            s.getTransitions().addAll(folded);
         }
 
-        auto.removeDeadTransitions();
-        auto.determinize();
+        // determinize is a no-op for automata flagged as deterministic
+        auto.setDeterministic(det);
+        if (!det)
+            auto.determinize();
         this.kind = Kind.CAMEL;
         this.prepare();
     }
 
     protected void convertToLenAutomaton() {
-
-        Map<Transition, State> transitions = new HashMap<>();
-
-        for (State s : auto.getStates()) {
-            for(Transition t : s.getTransitions()){
-                transitions.put(t, s);
-            }
-        }
-
-        for (Transition t : transitions.keySet()) {
-
-            if(t.getMin() == Character.MIN_VALUE && t.getMax() == Character
-                    .MAX_VALUE)
-                continue;
-
-            Transition tnew = new Transition(Character.MIN_VALUE,
-                    Character.MAX_VALUE, t.getDest());
-
-            State s = transitions.get(t);
-            s.getTransitions().remove(t);
-            s.getTransitions().add(tnew);
-        }
-
-        auto.removeDeadTransitions();
-        auto.determinize();
+        LengthSet l = getLengthSet();
+        auto = l.toAutomaton();
+        init = auto.getInitialState();
         this.kind = Kind.LEN;
         this.prepare();
         this.finish();
+        // the length automaton has the same lengths
+        lengths = l;
+    }
+
+    /**
+     * @return the suffix automaton of the words of auto or null if auto
+     * accepts an infinite language or too many words
+     */
+    private SuffixAutomatonBuilder getSuffixAutomatonBuilder() {
+        Set<String> words = auto.getFiniteStrings(SUFFIX_AUTOMATON_WORD_LIMIT);
+        if (words == null)
+            return null;
+        SuffixAutomatonBuilder b = new SuffixAutomatonBuilder();
+        b.addAll(words);
+        // the finite strings never contain the empty word
+        if (auto.getInitialState().isAccept())
+            b.add("");
+        return b;
     }
 
     protected void convertToSubstringAutomaton() {
-        setAccepting();
-        setEpsilon();
+        SuffixAutomatonBuilder b = getSuffixAutomatonBuilder();
+        if (b != null) {
+            auto = b.toSubstringAutomaton();
+            init = auto.getInitialState();
+        } else {
+            setAccepting();
+            setEpsilon();
+        }
         this.kind = Kind.SUBSTRING;
         this.prepare();
         this.finish();
     }
 
     protected void convertToSuffixAutomaton() {
-        setEpsilon();
+        SuffixAutomatonBuilder b = getSuffixAutomatonBuilder();
+        if (b != null) {
+            auto = b.toSuffixAutomaton();
+            init = auto.getInitialState();
+        } else {
+            setEpsilon();
+        }
         this.kind = Kind.SUFFIX;
         this.prepare();
         this.finish();
     }
 
+    /**
+     * @return the lengths of the words accepted by this automaton; the set
+     * is computed once and kept until the automaton is transformed
+     */
+    public LengthSet getLengthSet() {
+        if (lengths == null)
+            lengths = LengthConverter.INSTANCE.getLengthSet(auto);
+        return lengths;
+    }
+
     public void finish() {
         stateId = 0;
         statenumber.clear();
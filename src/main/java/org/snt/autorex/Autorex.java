@@ -30,6 +30,21 @@ import dk.brics.automaton.Automaton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.cache.AutomatonFingerprint;
+import org.snt.autorex.cache.RegexCache;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 public class Autorex {
 
@@ -37,21 +52,229 @@ public class Autorex {
 
     /**
      * returns the regular expression that represents the semantics
-     * of a given automaton a
+     * of a given automaton a. The conversion does not share any mutable
+     * state and can be invoked concurrently as long as a is not modified
+     * at the same time.
      * @param a the automaton to convert to a regexp
      * @param ltrans a label translator
      * @return the string that represents the regular language accepted by a
      */
     public static String getRegexFromAutomaton(Automaton a, LabelTranslator
             ltrans) {
-        Gnfa gnfa = Converter.INSTANCE.getGnfaFromAutomaton(a, ltrans);
-        return StateEliminator.INSTANCE.eliminate(gnfa);
+        return getRegexFromAutomaton(a, ltrans, DefaultEliminationStrategy
+                .WEIGHT);
+    }
+
+    /**
+     * returns the regular expression that represents the semantics
+     * of a given automaton a
+     * @param a the automaton to convert to a regexp
+     * @param ltrans a label translator
+     * @param strategy the order in which states are eliminated
+     * @return the string that represents the regular language accepted by a
+     */
+    public static String getRegexFromAutomaton(Automaton a, LabelTranslator
+            ltrans, EliminationStrategy strategy) {
+        return getRegexFromAutomaton(a, ltrans, Engine.GRAPH, strategy,
+                ConversionListener.NOOP);
+    }
+
+    /**
+     * returns the regular expression that represents the semantics
+     * of a given automaton a and reports the progress to listener
+     * @param a the automaton to convert to a regexp
+     * @param ltrans a label translator
+     * @param strategy the order in which states are eliminated
+     * @param listener receives per-phase measurements, e.g., a
+     *                 {@link ConversionStats} instance
+     * @return the string that represents the regular language accepted by a
+     */
+    public static String getRegexFromAutomaton(Automaton a, LabelTranslator
+            ltrans, EliminationStrategy strategy, ConversionListener
+            listener) {
+        return getRegexFromAutomaton(a, ltrans, Engine.GRAPH, strategy,
+                listener);
+    }
+
+    /**
+     * returns the regular expression that represents the semantics
+     * of a given automaton a
+     * @param a the automaton to convert to a regexp
+     * @param ltrans a label translator
+     * @param engine the algorithm that eliminates the states
+     * @return the string that represents the regular language accepted by a
+     */
+    public static String getRegexFromAutomaton(Automaton a, LabelTranslator
+            ltrans, Engine engine) {
+        return getRegexFromAutomaton(a, ltrans, engine,
+                DefaultEliminationStrategy.WEIGHT, ConversionListener.NOOP);
+    }
+
+    /**
+     * returns the regular expression that represents the semantics
+     * of a given automaton a and reports the progress to listener. Only
+     * {@link Engine#AUTO} converts finite languages directly by
+     * {@link AcyclicConverter}, which is linear in the automaton but may
+     * return a much longer regexp than state elimination.
+     * @param a the automaton to convert to a regexp
+     * @param ltrans a label translator
+     * @param engine the algorithm that eliminates the states
+     * @param strategy the order in which states are eliminated
+     * @param listener receives per-phase measurements
+     * @return the string that represents the regular language accepted by a
+     */
+    public static String getRegexFromAutomaton(Automaton a, LabelTranslator
+            ltrans, Engine engine, EliminationStrategy strategy,
+            ConversionListener listener) {
+        if (engine == Engine.AUTO) {
+            String ret = AcyclicConverter.INSTANCE.getRegexFromAutomaton(a,
+                    ltrans, listener);
+            if (ret != null)
+                return ret;
+        }
+        Gnfa gnfa = Converter.INSTANCE.getGnfaFromAutomaton(a, ltrans,
+                listener);
+        return engine.eliminate(gnfa, strategy, listener);
     }
 
     public static String getRegexFromAutomaton(Automaton a) {
         return getRegexFromAutomaton(a, new DefaultLabelTranslator());
     }
 
+    /**
+     * returns the regular expression that matches exactly the given words
+     * without building a dk.brics automaton
+     * @param words the words in ascending order of
+     * {@link String#compareTo(String)}
+     * @param ltrans a label translator
+     * @return the string that represents the given words
+     * @throws IllegalArgumentException if the words are not sorted
+     */
+    public static String getRegexFromSortedStrings(Iterator<? extends
+            CharSequence> words, LabelTranslator ltrans) {
+        DawgBuilder b = new DawgBuilder();
+        while (words.hasNext())
+            b.add(words.next());
+        return b.toRegex(ltrans);
+    }
+
+    public static String getRegexFromSortedStrings(Iterable<? extends
+            CharSequence> words) {
+        return getRegexFromSortedStrings(words.iterator(), new
+                DefaultLabelTranslator());
+    }
+
+    public static String getRegexFromSortedStrings(Stream<? extends
+            CharSequence> words) {
+        return getRegexFromSortedStrings(words.iterator(), new
+                DefaultLabelTranslator());
+    }
+
+    /**
+     * returns the regular expression that represents the semantics of a
+     * given automaton a and consults cache first. The lookup key is the
+     * fingerprint of the minimal automaton of a, hence all automata that
+     * accept the same language share a cache entry. On a miss, the regular
+     * expression is computed from the minimal automaton.
+     * @param a the automaton to convert to a regexp
+     * @param ltrans a label translator
+     * @param cache the cache to consult and to fill
+     * @return the string that represents the regular language accepted by a
+     */
+    public static String getRegexFromAutomaton(Automaton a, LabelTranslator
+            ltrans, RegexCache cache) {
+        Automaton min = a.clone();
+        min.minimize();
+        AutomatonFingerprint fp = AutomatonFingerprint.ofMinimal(min);
+        String ret = cache.get(fp, ltrans);
+        if (ret == null) {
+            ret = getRegexFromAutomaton(min, ltrans);
+            cache.put(fp, ltrans, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * starts the conversion of all the given automata on executor
+     * @param automata the automata to convert to regexps
+     * @param ltrans a label translator
+     * @param executor the executor that runs the conversions
+     * @return one future per automaton in iteration order; a failing
+     * conversion only completes its own future exceptionally
+     */
+    public static List<CompletableFuture<String>> submitRegexConversions
+    (Collection<Automaton> automata, LabelTranslator ltrans, Executor
+            executor) {
+        List<CompletableFuture<String>> ret = new ArrayList<>(automata.size());
+        for (Automaton a : automata) {
+            ret.add(CompletableFuture.supplyAsync(() ->
+                    getRegexFromAutomaton(a, ltrans), executor));
+        }
+        return ret;
+    }
+
+    /**
+     * converts all the given automata on executor and waits for the results
+     * @param automata the automata to convert to regexps
+     * @param ltrans a label translator
+     * @param executor the executor that runs the conversions
+     * @return the results in iteration order of automata
+     */
+    public static List<ConversionResult> getRegexesFromAutomata
+    (Collection<Automaton> automata, LabelTranslator ltrans, Executor
+            executor) {
+        List<CompletableFuture<String>> futures = submitRegexConversions
+                (automata, ltrans, executor);
+        List<ConversionResult> ret = new ArrayList<>(automata.size());
+        Iterator<Automaton> it = automata.iterator();
+        for (CompletableFuture<String> f : futures) {
+            Automaton a = it.next();
+            try {
+                ret.add(new ConversionResult(a, f.join(), null));
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                ret.add(new ConversionResult(a, null, cause));
+            }
+        }
+        return ret;
+    }
+
+    public static List<ConversionResult> getRegexesFromAutomata
+            (Collection<Automaton> automata, Executor executor) {
+        return getRegexesFromAutomata(automata, new DefaultLabelTranslator
+                (), executor);
+    }
+
+    public static List<ConversionResult> getRegexesFromAutomata
+            (Collection<Automaton> automata) {
+        return getRegexesFromAutomata(automata, getDefaultExecutor());
+    }
+
+    /**
+     * returns the executor used for batch conversions if none is given,
+     * i.e., a virtual thread per task executor if the JVM supports virtual
+     * threads and the common fork-join pool otherwise
+     * @return the default batch executor
+     */
+    public static Executor getDefaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    private static class DefaultExecutorHolder {
+        private static final Executor EXECUTOR = createExecutor();
+
+        private static Executor createExecutor() {
+            try {
+                Method m = Executors.class.getMethod
+                        ("newVirtualThreadPerTaskExecutor");
+                return (Executor) m.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOGGER.debug("virtual threads are not available");
+                return ForkJoinPool.commonPool();
+            }
+        }
+    }
+
     /**
      * converts automaton a to a non case-sensitive automaton
      * @param a an automaton that might be case-sensitie
@@ -88,6 +311,18 @@ public class Autorex {
         return getLenAutomaton(a, new DefaultLabelTranslator());
     }
 
+    /**
+     * returns the lengths of the words accepted by a given automaton. Use
+     * {@link AutomatonTrans#getLengthSet()} to keep the set together with
+     * the automaton.
+     * @param a an automaton
+     * @return the set of lengths that supports min, max, period and
+     * constant-time membership queries
+     */
+    public static LengthSet getLengthSet(Automaton a) {
+        return LengthConverter.INSTANCE.getLengthSet(a);
+    }
+
 
     /**
      * returns a non case-sensitive automaton that is based on a
@@ -107,6 +342,55 @@ public class Autorex {
         return getSubstringAutomaton(a, new DefaultLabelTranslator());
     }
 
+    /**
+     * returns the deterministic automaton of all the substrings of the
+     * given words, which is built in time linear in their total length
+     * @param words the words in any order
+     * @return substring automaton
+     */
+    public static Automaton getSubstringAutomatonFromStrings(Iterable<?
+            extends CharSequence> words) {
+        SuffixAutomatonBuilder b = new SuffixAutomatonBuilder();
+        b.addAll(words);
+        return b.toSubstringAutomaton();
+    }
+
+    /**
+     * returns the regular expression of all the substrings of the words
+     * accepted by a. Unlike {@link #getSubstringAutomaton(Automaton)}, the
+     * automaton is never determinized.
+     * @param a an automaton
+     * @param ltrans a label translator
+     * @return the string that represents all the substrings
+     */
+    public static String getSubstringRegex(Automaton a, LabelTranslator
+            ltrans) {
+        return StateEliminator.INSTANCE.eliminate(Converter.INSTANCE
+                .getSubstringGnfa(a, ltrans));
+    }
+
+    public static String getSubstringRegex(Automaton a) {
+        return getSubstringRegex(a, new DefaultLabelTranslator());
+    }
+
+    /**
+     * returns the regular expression of all the suffixes of the words
+     * accepted by a. Unlike {@link #getSuffixAutomaton(Automaton)}, the
+     * automaton is never determinized.
+     * @param a an automaton
+     * @param ltrans a label translator
+     * @return the string that represents all the suffixes
+     */
+    public static String getSuffixRegex(Automaton a, LabelTranslator
+            ltrans) {
+        return StateEliminator.INSTANCE.eliminate(Converter.INSTANCE
+                .getSuffixGnfa(a, ltrans));
+    }
+
+    public static String getSuffixRegex(Automaton a) {
+        return getSuffixRegex(a, new DefaultLabelTranslator());
+    }
+
     /**
      * returns an automaton that accepts all the suffixes from a
      * @param a an automaton
@@ -130,4 +414,18 @@ public class Autorex {
         return getSuffixAutomaton(a, new DefaultLabelTranslator());
     }
 
+    /**
+     * returns the deterministic automaton of all the non-empty suffixes of
+     * the given words, which is built in time linear in their total length
+     * @param words the words in any order
+     * @return suffix automaton that accepts the empty string only if it is
+     * one of the words
+     */
+    public static Automaton getSuffixAutomatonFromStrings(Iterable<? extends
+            CharSequence> words) {
+        SuffixAutomatonBuilder b = new SuffixAutomatonBuilder();
+        b.addAll(words);
+        return b.toSuffixAutomaton();
+    }
+
 }
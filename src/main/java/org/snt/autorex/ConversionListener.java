@@ -0,0 +1,78 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.snt.autorex.autograph.State;
+
+/**
+ * Receives measurements from the phases of a conversion. All methods do
+ * nothing by default. If {@link #NOOP} is passed, the conversion does not
+ * take any measurements at all.
+ */
+public interface ConversionListener {
+
+    enum Phase {
+        /** copy of the input automaton */
+        CLONE,
+        /** construction of the gnfa */
+        CONVERT,
+        /** merging of trivial states and edges */
+        TRIVIAL,
+        /** the main state elimination loop */
+        ELIMINATE,
+        /** serialization and cleanup of the final label */
+        POSTPROCESS
+    }
+
+    ConversionListener NOOP = new ConversionListener() {};
+
+    /**
+     * a phase has finished
+     * @param phase the phase
+     * @param nanos the wall time spent in phase
+     */
+    default void phaseFinished(Phase phase, long nanos) {}
+
+    /**
+     * a state has been ripped out of the gnfa
+     * @param s the eliminated state
+     * @param edges the number of edges in the gnfa right before s is
+     *              removed, i.e. the peak of this step, which includes the
+     *              edges of s and the ones created while eliminating it
+     * @param labelLength the length of the longest label that has been
+     *                    created or updated while eliminating s
+     */
+    default void stateEliminated(State s, int edges, long labelLength) {}
+
+    /**
+     * the elimination has finished
+     * @param labelLength the length of the final label
+     * @param labelNodes the number of distinct label nodes that have been
+     *                   allocated during the conversion
+     */
+    default void eliminationFinished(long labelLength, int labelNodes) {}
+}
@@ -0,0 +1,77 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+
+/**
+ * The outcome of converting a single automaton as part of a batch. Either
+ * the regular expression or the error that occurred is set.
+ */
+public class ConversionResult {
+
+    private final Automaton automaton;
+    private final String regex;
+    private final Throwable error;
+
+    public ConversionResult(Automaton automaton, String regex, Throwable
+            error) {
+        this.automaton = automaton;
+        this.regex = regex;
+        this.error = error;
+    }
+
+    /**
+     * @return the automaton that was converted
+     */
+    public Automaton getAutomaton() {
+        return automaton;
+    }
+
+    /**
+     * @return the regular expression or null if the conversion failed
+     */
+    public String getRegex() {
+        return regex;
+    }
+
+    /**
+     * @return the cause of the failure or null if the conversion succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? regex : "error: " + error;
+    }
+}
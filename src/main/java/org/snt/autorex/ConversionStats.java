@@ -0,0 +1,132 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.snt.autorex.autograph.State;
+
+/**
+ * A listener that aggregates the measurements of one or more conversions.
+ */
+public class ConversionStats implements ConversionListener {
+
+    /**
+     * rough size of a label node in bytes including its header and
+     * the interning table entry
+     */
+    private static final int LABEL_NODE_BYTES = 64;
+
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private int conversions = 0;
+    private long statesEliminated = 0;
+    private int peakEdges = 0;
+    private long peakLabelLength = 0;
+    private long finalLabelLength = 0;
+    private long labelNodes = 0;
+
+    @Override
+    public synchronized void phaseFinished(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    @Override
+    public synchronized void stateEliminated(State s, int edges, long
+            labelLength) {
+        statesEliminated++;
+        peakEdges = Math.max(peakEdges, edges);
+        peakLabelLength = Math.max(peakLabelLength, labelLength);
+    }
+
+    @Override
+    public synchronized void eliminationFinished(long labelLength, int
+            labelNodes) {
+        conversions++;
+        this.finalLabelLength += labelLength;
+        this.peakLabelLength = Math.max(peakLabelLength, labelLength);
+        this.labelNodes += labelNodes;
+    }
+
+    /**
+     * @param phase a conversion phase
+     * @return the accumulated wall time of phase in nanoseconds
+     */
+    public synchronized long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return the number of finished conversions
+     */
+    public synchronized int getConversions() {
+        return conversions;
+    }
+
+    public synchronized long getStatesEliminated() {
+        return statesEliminated;
+    }
+
+    public synchronized int getPeakEdges() {
+        return peakEdges;
+    }
+
+    public synchronized long getPeakLabelLength() {
+        return peakLabelLength;
+    }
+
+    /**
+     * @return the sum of the final label lengths of all conversions
+     */
+    public synchronized long getFinalLabelLength() {
+        return finalLabelLength;
+    }
+
+    public synchronized long getLabelNodes() {
+        return labelNodes;
+    }
+
+    /**
+     * @return an estimate of the bytes allocated for labels
+     */
+    public synchronized long getEstimatedLabelBytes() {
+        return labelNodes * LABEL_NODE_BYTES;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase p : Phase.values()) {
+            sb.append(p.name().toLowerCase()).append(": ")
+                    .append(phaseNanos[p.ordinal()] / 1000).append("us\n");
+        }
+        sb.append("conversions: ").append(conversions).append("\n");
+        sb.append("states eliminated: ").append(statesEliminated).append("\n");
+        sb.append("peak edges: ").append(peakEdges).append("\n");
+        sb.append("peak label length: ").append(peakLabelLength).append("\n");
+        sb.append("final label length: ").append(finalLabelLength).append("\n");
+        sb.append("label nodes: ").append(labelNodes).append("\n");
+        return sb.toString();
+    }
+}
@@ -32,9 +32,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snt.autorex.autograph.Gnfa;
 import org.snt.autorex.autograph.Transition;
+import org.snt.autorex.regex.RegexNode;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -60,49 +64,72 @@ public enum Converter {
      * @return generalized non-deterministic finite automaton
      */
     public Gnfa getGnfaFromAutomaton(Automaton auto, LabelTranslator ltrans) {
+        return getGnfaFromAutomaton(auto, ltrans, ConversionListener.NOOP);
+    }
+
+    /**
+     * convert dk.brics automaton into gnfa
+     * @param auto dk.brics automaton
+     * @param ltrans label translator
+     * @param listener receives the time spent in the clone and convert phases
+     *
+     * @return generalized non-deterministic finite automaton
+     */
+    public Gnfa getGnfaFromAutomaton(Automaton auto, LabelTranslator ltrans,
+                                     ConversionListener listener) {
+        boolean observed = listener != ConversionListener.NOOP;
+        long t0 = observed ? System.nanoTime() : 0L;
+
         Gnfa ag = new Gnfa();
         AutomatonTrans at = new AutomatonTrans(auto, ltrans);
 
+        long t1 = observed ? System.nanoTime() : 0L;
+        if (observed)
+            listener.phaseFinished(ConversionListener.Phase.CLONE, t1 - t0);
+
         Map<State,org.snt.autorex.autograph.State> smap = new HashMap<>();
         Set<org.snt.autorex.autograph.State> accepting = new HashSet<>();
         Set<org.snt.autorex.autograph.State> start = new HashSet<>();
 
-        org.snt.autorex.autograph.State end =  new org.snt.autorex.autograph
-                .State(org.snt.autorex
+        org.snt.autorex.autograph.State end = ag.createState(org.snt.autorex
                 .autograph.State.Kind.ACCEPT);
 
-        org.snt.autorex.autograph.State init =  new org.snt.autorex.autograph
-                .State(org.snt.autorex
+        org.snt.autorex.autograph.State init = ag.createState(org.snt.autorex
                 .autograph.State.Kind.START);
 
         ag.addVertex(end);
         ag.addVertex(init);
 
 
-        for(FullTransition ft : at.transitions){
-            State src = ft.getSourceState();
-            State dst = ft.getTargetState();
-
-            org.snt.autorex.autograph.State arxsrc = getStateFrom(start,
-                    accepting, smap, at, src);
-            org.snt.autorex.autograph.State arxdst = getStateFrom(start,
-                    accepting, smap, at, dst);
-
-            Transition t = null;
-            if(ag.containsEdge(arxsrc, arxdst)) {
-                t = ag.getEdge(arxsrc, arxdst);
-                t.getLabel().append("|");
-                t.getLabel().append(ft
-                        .getTransitionLabel());
-            } else {
-                t = new Transition(arxsrc, arxdst, Transition.Kind
-                        .MATCH,ft
-                        .getTransitionLabel());
+        // visit the states in a fixed order so that the state numbering and
+        // thus the resulting regular expression do not depend on hashing
+        List<State> states = getStatesInBfsOrder(at.init);
+        Alphabet alpha = new Alphabet(states, LabelAppender.of(ltrans));
+
+        for(State src : states) {
+            // parallel transitions are merged into a single set of
+            // character classes
+            Map<State, long[]> par = new LinkedHashMap<>();
+            for (dk.brics.automaton.Transition bt : src.getSortedTransitions
+                    (false)) {
+                alpha.addClasses(par.computeIfAbsent(bt.getDest(), k ->
+                        alpha.newSet()), bt);
             }
 
-            ag.addVertex(arxdst);
+            org.snt.autorex.autograph.State arxsrc = getStateFrom(ag,
+                    start, accepting, smap, at, src);
             ag.addVertex(arxsrc);
-            ag.addEdge(t);
+
+            for (Map.Entry<State, long[]> e : par.entrySet()) {
+                org.snt.autorex.autograph.State arxdst = getStateFrom(ag,
+                        start, accepting, smap, at, e.getKey());
+
+                RegexNode lbl = ag.getFactory().charClass(alpha, e.getValue());
+
+                ag.addVertex(arxdst);
+                ag.addEdge(new Transition(arxsrc, arxdst, Transition.Kind
+                        .MATCH, lbl));
+            }
         }
 
         accepting.forEach(
@@ -121,12 +148,198 @@ public enum Converter {
                 }
         );
 
+        if (observed)
+            listener.phaseFinished(ConversionListener.Phase.CONVERT, System
+                    .nanoTime() - t1);
+
         return ag;
     }
 
 
+    /**
+     * build the gnfa of all the substrings of the words accepted by auto
+     * without determinizing: the start state reaches every live state with
+     * the labels of its incoming transitions, and every live state is
+     * accepting
+     * @param auto dk.brics automaton - it is not modified
+     * @param ltrans label translator
+     * @return generalized non-deterministic finite automaton
+     */
+    public Gnfa getSubstringGnfa(Automaton auto, LabelTranslator ltrans) {
+        return getInfixGnfa(auto, ltrans, true);
+    }
+
+    /**
+     * build the gnfa of all the suffixes of the words accepted by auto
+     * without determinizing: the start state reaches every live state with
+     * the labels of its incoming transitions. The empty word is only
+     * accepted if auto accepts it.
+     * @param auto dk.brics automaton - it is not modified
+     * @param ltrans label translator
+     * @return generalized non-deterministic finite automaton
+     */
+    public Gnfa getSuffixGnfa(Automaton auto, LabelTranslator ltrans) {
+        return getInfixGnfa(auto, ltrans, false);
+    }
+
+    private Gnfa getInfixGnfa(Automaton auto, LabelTranslator ltrans,
+                              boolean substring) {
+        Gnfa ag = new Gnfa();
+        org.snt.autorex.autograph.State end = ag.createState(org.snt.autorex
+                .autograph.State.Kind.ACCEPT);
+        org.snt.autorex.autograph.State init = ag.createState(org.snt.autorex
+                .autograph.State.Kind.START);
+        ag.addVertex(end);
+        ag.addVertex(init);
+
+        List<State> states = getStatesInBfsOrder(auto.getInitialState());
+        Map<State, Integer> num = new HashMap<>();
+        for (int i = 0; i < states.size(); i++)
+            num.put(states.get(i), i);
+        boolean [] live = getLiveStates(states, getDestinations(states,
+                num));
+        if (!live[0])
+            return ag;
+
+        Alphabet alpha = new Alphabet(states, LabelAppender.of(ltrans));
+        org.snt.autorex.autograph.State [] smap = new org.snt.autorex
+                .autograph.State[states.size()];
+        for (int i = 0; i < states.size(); i++) {
+            if (live[i]) {
+                smap[i] = ag.createState(org.snt.autorex.autograph.State.Kind
+                        .NORMAL);
+                ag.addVertex(smap[i]);
+            }
+        }
+
+        // the labels of all the live transitions into a state
+        long [][] incoming = new long[states.size()][];
+        for (int i = 0; i < states.size(); i++) {
+            if (!live[i])
+                continue;
+            Map<Integer, long[]> par = new LinkedHashMap<>();
+            for (dk.brics.automaton.Transition bt : states.get(i)
+                    .getSortedTransitions(false)) {
+                int d = num.get(bt.getDest());
+                if (!live[d])
+                    continue;
+                alpha.addClasses(par.computeIfAbsent(d, k -> alpha.newSet()),
+                        bt);
+                if (incoming[d] == null)
+                    incoming[d] = alpha.newSet();
+                alpha.addClasses(incoming[d], bt);
+            }
+            for (Map.Entry<Integer, long[]> e : par.entrySet()) {
+                ag.addEdge(new Transition(smap[i], smap[e.getKey()],
+                        Transition.Kind.MATCH, ag.getFactory().charClass
+                        (alpha, e.getValue())));
+            }
+            if (substring || states.get(i).isAccept())
+                ag.addEdge(new Transition(smap[i], end, Transition.Kind
+                        .EPSILON));
+        }
+
+        for (int i = 0; i < states.size(); i++) {
+            if (!live[i] || (incoming[i] == null && i != 0))
+                continue;
+            RegexNode lbl = incoming[i] != null ? ag.getFactory().charClass
+                    (alpha, incoming[i]) : null;
+            if (i == 0)
+                lbl = ag.getFactory().union(lbl, RegexNode.EPSILON);
+            Transition.Kind k = lbl == RegexNode.EPSILON ? Transition.Kind
+                    .EPSILON : Transition.Kind.MATCH;
+            ag.addEdge(new Transition(init, smap[i], k, lbl));
+        }
+        return ag;
+    }
+
+    /**
+     * @param states the states of an automaton
+     * @param num the position of every state in states
+     * @return the positions of the targets of the transitions of every
+     * state
+     */
+    static int [][] getDestinations(List<State> states, Map<State, Integer>
+            num) {
+        int n = states.size();
+        int [][] dst = new int[n][];
+        for (int i = 0; i < n; i++) {
+            Set<dk.brics.automaton.Transition> ts = states.get(i)
+                    .getTransitions();
+            dst[i] = new int[ts.size()];
+            int k = 0;
+            for (dk.brics.automaton.Transition t : ts)
+                dst[i][k++] = num.get(t.getDest());
+        }
+        return dst;
+    }
+
+    /**
+     * @param states the states of an automaton
+     * @param dst the positions of the transition targets of every state
+     * @return which of the states reach an accepting state
+     */
+    static boolean [] getLiveStates(List<State> states, int [][] dst) {
+        int n = states.size();
+
+        // the predecessors of state v are pred[first[v]..first[v + 1] - 1]
+        int [] first = new int[n + 1];
+        for (int [] ds : dst) {
+            for (int d : ds)
+                first[d + 1]++;
+        }
+        for (int v = 0; v < n; v++)
+            first[v + 1] += first[v];
+        int [] pred = new int[first[n]];
+        int [] fill = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int d : dst[i])
+                pred[first[d] + fill[d]++] = i;
+        }
+
+        boolean [] live = new boolean[n];
+        int [] work = new int[n];
+        int top = 0;
+        for (int v = 0; v < n; v++) {
+            if (states.get(v).isAccept()) {
+                live[v] = true;
+                work[top++] = v;
+            }
+        }
+        while (top > 0) {
+            int v = work[--top];
+            for (int p = first[v]; p < first[v + 1]; p++) {
+                if (!live[pred[p]]) {
+                    live[pred[p]] = true;
+                    work[top++] = pred[p];
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * get all states that are reachable from init in breadth-first order
+     * @param init initial state
+     * @return list of reachable states
+     */
+    static List<State> getStatesInBfsOrder(State init) {
+        List<State> order = new ArrayList<>();
+        Set<State> visited = new HashSet<>();
+        order.add(init);
+        visited.add(init);
+        for (int i = 0; i < order.size(); i++) {
+            for (dk.brics.automaton.Transition t : order.get(i)
+                    .getSortedTransitions(false)) {
+                if (visited.add(t.getDest()))
+                    order.add(t.getDest());
+            }
+        }
+        return order;
+    }
+
     private org.snt.autorex.autograph.State getStateFrom
-            (Set<org.snt.autorex.autograph.State> start,
+            (Gnfa ag, Set<org.snt.autorex.autograph.State> start,
              Set<org.snt.autorex.autograph.State> accepting,
              Map<State,org.snt.autorex.autograph.State> smap,
              AutomatonTrans a, State s) {
@@ -134,8 +347,7 @@ public enum Converter {
         if(smap.containsKey(s))
             return smap.get(s);
 
-        org.snt.autorex.autograph.State ret = new org.snt.autorex.autograph
-                .State(org.snt.autorex
+        org.snt.autorex.autograph.State ret = ag.createState(org.snt.autorex
                 .autograph.State.Kind.NORMAL);
 
         if(s.isAccept()) {
@@ -0,0 +1,353 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.snt.autorex.regex.RegexFactory;
+import org.snt.autorex.regex.RegexNode;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Builds the minimal acyclic automaton of a sorted list of words
+ * incrementally, as described by Daciuk et al. in "Incremental
+ * Construction of Minimal Acyclic Finite-State Automata". Only the states
+ * on the path of the last word are mutable; all other states are
+ * registered, i.e., frozen and deduplicated by their signature. The states
+ * and transitions live in primitive arrays, and the regular expression is
+ * built directly from them.
+ */
+public final class DawgBuilder {
+
+    private static final int NONE = -1;
+
+    // the transitions of registered state s are
+    // label[first[s]..first[s + 1] - 1] and dest[first[s]..first[s + 1] - 1]
+    private int [] first = new int[17];
+    private boolean [] accept = new boolean[16];
+    private char [] label = new char[64];
+    private int [] dest = new int[64];
+    private int states = 0;
+
+    // open addressing hash table of the registered states
+    private int [] table = newTable(64);
+
+    // the unregistered states on the path of the last word; the last
+    // transition of a path state leads to the next path state
+    private char [][] pathLabel = new char[16][];
+    private int [][] pathDest = new int[16][];
+    private int [] pathCount = new int[16];
+    private boolean [] pathAccept = new boolean[16];
+
+    private final StringBuilder last = new StringBuilder();
+    private boolean empty = true;
+    private int root = NONE;
+
+    /**
+     * add a word; the words have to be added in ascending order of
+     * {@link String#compareTo(String)}, duplicates are ignored
+     * @param word the word to add
+     * @throws IllegalArgumentException if word is smaller than the last word
+     * @throws IllegalStateException if the regular expression has been
+     * built already
+     */
+    public void add(CharSequence word) {
+        if (root != NONE)
+            throw new IllegalStateException("the automaton has been built " +
+                    "already");
+
+        int len = word.length();
+        int p = 0;
+        int n = Math.min(len, last.length());
+        while (p < n && word.charAt(p) == last.charAt(p))
+            p++;
+
+        if (!empty) {
+            if (p == len && len == last.length())
+                return;
+            if (p == len || (p < last.length() && word.charAt(p) < last
+                    .charAt(p)))
+                throw new IllegalArgumentException("words are not sorted: '"
+                        + word + "' after '" + last + "'");
+        } else {
+            resetPathState(0);
+        }
+
+        freeze(p);
+        ensurePathCapacity(len + 1);
+        for (int d = p; d < len; d++) {
+            addPathTransition(d, word.charAt(d));
+            resetPathState(d + 1);
+        }
+        pathAccept[len] = true;
+
+        last.setLength(p);
+        last.append(word, p, len);
+        empty = false;
+    }
+
+    /**
+     * @param words the words to add in ascending order
+     */
+    public void addAll(Iterable<? extends CharSequence> words) {
+        for (CharSequence w : words)
+            add(w);
+    }
+
+    /**
+     * @return the number of states of the minimal automaton, including the
+     * path of the last word if it has not been registered yet
+     */
+    public int getNumberOfStates() {
+        return root != NONE || empty ? states : states + last.length() + 1;
+    }
+
+    /**
+     * @return the regular expression of the words
+     */
+    public String toRegex() {
+        return toRegex(new DefaultLabelTranslator());
+    }
+
+    /**
+     * build the regular expression of the words; no more words can be added
+     * afterwards
+     * @param ltrans a label translator
+     * @return the regular expression of the words, or
+     * {@link AcyclicConverter#EMPTY} if no word has been added
+     */
+    public String toRegex(LabelTranslator ltrans) {
+        if (empty)
+            return AcyclicConverter.EMPTY;
+        if (root == NONE) {
+            freeze(0);
+            root = register(0);
+        }
+
+        LabelAppender appender = LabelAppender.of(ltrans);
+        RegexFactory f = new RegexFactory();
+        // a state is registered after all its successors, hence the
+        // numbering is a reverse topological order
+        RegexNode [] rex = new RegexNode[states];
+        Map<RegexNode, Integer> groups = new IdentityHashMap<>();
+        int [] group = new int[16];
+        int [] order = new int[16];
+        int [] start = new int[17];
+        char [] min = new char[16];
+        char [] max = new char[16];
+        RegexNode [] sfx = new RegexNode[16];
+        StringBuilder sb = new StringBuilder();
+
+        for (int s = 0; s < states; s++) {
+            int lo = first[s];
+            int n = first[s + 1] - lo;
+            if (group.length < n) {
+                group = new int[n];
+                order = new int[n];
+                start = new int[n + 1];
+                min = new char[n];
+                max = new char[n];
+                sfx = new RegexNode[n];
+            }
+
+            // the transitions with the same suffix form a character class
+            groups.clear();
+            for (int k = 0; k < n; k++) {
+                RegexNode x = rex[dest[lo + k]];
+                Integer g = groups.get(x);
+                if (g == null) {
+                    g = groups.size();
+                    groups.put(x, g);
+                    sfx[g] = x;
+                }
+                group[k] = g;
+            }
+            int m = groups.size();
+
+            // stable counting sort of the transitions by group
+            Arrays.fill(start, 0, m + 1, 0);
+            for (int k = 0; k < n; k++)
+                start[group[k] + 1]++;
+            for (int g = 0; g < m; g++)
+                start[g + 1] += start[g];
+            for (int k = 0; k < n; k++)
+                order[start[group[k]]++] = k;
+
+            RegexNode lbl = accept[s] ? RegexNode.EPSILON : null;
+            for (int g = m - 1, hi = n; g >= 0; g--) {
+                int from = g == 0 ? 0 : start[g - 1];
+                int c = 0;
+                for (int x = from; x < hi; x++) {
+                    char ch = label[lo + order[x]];
+                    if (c > 0 && ch == max[c - 1] + 1) {
+                        max[c - 1] = ch;
+                    } else {
+                        min[c] = ch;
+                        max[c] = ch;
+                        c++;
+                    }
+                }
+                hi = from;
+
+                sb.setLength(0);
+                appender.appendLabel(sb, min, max, c);
+                lbl = f.union(f.concat(f.literal(sb.toString()), sfx[g]), lbl);
+            }
+            rex[s] = lbl;
+        }
+
+        return StateEliminator.INSTANCE.finish(f, rex[root], 0L,
+                ConversionListener.NOOP);
+    }
+
+    /**
+     * register the path states below depth d
+     */
+    private void freeze(int d) {
+        for (int k = last.length(); k > d; k--) {
+            int id = register(k);
+            pathDest[k - 1][pathCount[k - 1] - 1] = id;
+        }
+    }
+
+    /**
+     * @return the registered state that is equivalent to path state d
+     */
+    private int register(int d) {
+        int n = pathCount[d];
+        char [] lbl = pathLabel[d];
+        int [] dst = pathDest[d];
+        boolean acc = pathAccept[d];
+
+        int h = hash(acc, lbl, dst, 0, n);
+        int mask = table.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int s = table[i];
+            if (s == NONE)
+                break;
+            if (isEqual(s, acc, lbl, dst, n))
+                return s;
+        }
+
+        int s = states++;
+        if (s == accept.length) {
+            accept = Arrays.copyOf(accept, 2 * s);
+            first = Arrays.copyOf(first, 2 * s + 1);
+        }
+        int lo = first[s];
+        if (lo + n > label.length) {
+            int cap = Math.max(2 * label.length, lo + n);
+            label = Arrays.copyOf(label, cap);
+            dest = Arrays.copyOf(dest, cap);
+        }
+        System.arraycopy(lbl, 0, label, lo, n);
+        System.arraycopy(dst, 0, dest, lo, n);
+        first[s + 1] = lo + n;
+        accept[s] = acc;
+
+        if (2 * states > table.length)
+            rehash();
+        else
+            insert(table, s, h);
+        return s;
+    }
+
+    private boolean isEqual(int s, boolean acc, char [] lbl, int [] dst, int
+            n) {
+        int lo = first[s];
+        if (accept[s] != acc || first[s + 1] - lo != n)
+            return false;
+        for (int k = 0; k < n; k++) {
+            if (label[lo + k] != lbl[k] || dest[lo + k] != dst[k])
+                return false;
+        }
+        return true;
+    }
+
+    private static int hash(boolean acc, char [] lbl, int [] dst, int lo,
+                            int n) {
+        int h = acc ? 1 : 0;
+        for (int k = lo; k < lo + n; k++)
+            h = 31 * (31 * h + lbl[k]) + dst[k];
+        // consecutive ids would form long runs in the linear probing
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash() {
+        int [] t = newTable(2 * table.length);
+        for (int s = 0; s < states; s++)
+            insert(t, s, hash(accept[s], label, dest, first[s], first[s + 1]
+                    - first[s]));
+        table = t;
+    }
+
+    private static void insert(int [] t, int s, int h) {
+        int mask = t.length - 1;
+        int i = h & mask;
+        while (t[i] != NONE)
+            i = (i + 1) & mask;
+        t[i] = s;
+    }
+
+    private static int [] newTable(int size) {
+        int [] t = new int[size];
+        Arrays.fill(t, NONE);
+        return t;
+    }
+
+    private void ensurePathCapacity(int n) {
+        if (n <= pathCount.length)
+            return;
+        int cap = Math.max(n, 2 * pathCount.length);
+        pathLabel = Arrays.copyOf(pathLabel, cap);
+        pathDest = Arrays.copyOf(pathDest, cap);
+        pathCount = Arrays.copyOf(pathCount, cap);
+        pathAccept = Arrays.copyOf(pathAccept, cap);
+    }
+
+    private void resetPathState(int d) {
+        if (pathLabel[d] == null) {
+            pathLabel[d] = new char[4];
+            pathDest[d] = new int[4];
+        }
+        pathCount[d] = 0;
+        pathAccept[d] = false;
+    }
+
+    private void addPathTransition(int d, char c) {
+        int n = pathCount[d];
+        if (n == pathLabel[d].length) {
+            pathLabel[d] = Arrays.copyOf(pathLabel[d], 2 * n);
+            pathDest[d] = Arrays.copyOf(pathDest[d], 2 * n);
+        }
+        pathLabel[d][n] = c;
+        pathDest[d][n] = NONE;
+        pathCount[d] = n + 1;
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.autograph.State;
+import org.snt.autorex.autograph.Transition;
+
+/**
+ * Elimination strategies that are shipped with autorex
+ */
+public enum DefaultEliminationStrategy implements EliminationStrategy {
+
+    /**
+     * number of transitions that have to be created when eliminating the
+     * state, i.e., in-degree times out-degree
+     */
+    DEGREE {
+        @Override
+        public long getCost(Gnfa a, State s) {
+            return (long) getInDegree(a, s) * getOutDegree(a, s);
+        }
+    },
+
+    /**
+     * label weight heuristic: the amount by which the overall label length
+     * of the gnfa grows when eliminating the state
+     */
+    WEIGHT {
+        @Override
+        public long getCost(Gnfa a, State s) {
+            int v = a.indexOf(s);
+            int in = getInDegree(a, s);
+            int out = getOutDegree(a, s);
+
+            long cost = 0;
+            for (int i = 0; i < a.inDegreeOf(v); i++) {
+                if (a.getIncomingVertex(v, i) != v)
+                    cost += getWeight(a.getIncomingEdge(v, i)) * (out - 1);
+            }
+            for (int i = 0; i < a.outDegreeOf(v); i++) {
+                if (a.getOutgoingVertex(v, i) != v)
+                    cost += getWeight(a.getOutgoingEdge(v, i)) * (in - 1);
+            }
+            Transition self = a.getEdge(v, v);
+            if (self != null) {
+                cost += getWeight(self) * ((long) in * out - 1);
+            }
+            return cost;
+        }
+    },
+
+    /**
+     * like DEGREE but states with a self-loop are only eliminated after
+     * all the states without a self-loop have been ripped out
+     */
+    DELAYED_LOOP {
+        @Override
+        public long getCost(Gnfa a, State s) {
+            long cost = DEGREE.getCost(a, s);
+            if (a.containsEdge(s, s))
+                cost += LOOP_PENALTY;
+            return cost;
+        }
+    };
+
+    private static final long LOOP_PENALTY = 1L << 40;
+
+    private static long getWeight(Transition t) {
+        return t.getLabel() != null ? t.getLabel().length() : 0;
+    }
+
+    private static int getInDegree(Gnfa a, State s) {
+        int v = a.indexOf(s);
+        return a.inDegreeOf(v) - (a.containsEdge(v, v) ? 1 : 0);
+    }
+
+    private static int getOutDegree(Gnfa a, State s) {
+        int v = a.indexOf(s);
+        return a.outDegreeOf(v) - (a.containsEdge(v, v) ? 1 : 0);
+    }
+}
@@ -29,21 +29,187 @@ package org.snt.autorex;
 import dk.brics.automaton.Transition;
 import org.snt.autorex.utils.EscapeUtils;
 
+import java.util.List;
+
 /**
  * Created by julian on 12/04/2017.
+ *
+ * The translator is stateless, hence all instances of the same class are
+ * considered equal. Subclasses that carry state have to override equals
+ * and hashCode.
+ *
+ * Parallel transitions are merged into a single character class. Subclasses
+ * that override {@link #getTransitionString(Transition)} get the union of
+ * their single labels instead, unless they override
+ * {@link #getTransitionString(List)} as well.
  */
-public class DefaultLabelTranslator implements LabelTranslator {
+public class DefaultLabelTranslator implements LabelTranslator, LabelAppender {
+
+    private static final ClassValue<Boolean> MERGES = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return declaredHere(type, Transition.class);
+        }
+    };
+
+    private static final ClassValue<Boolean> PLAIN = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return declaredHere(type, Transition.class) && declaredHere(type,
+                    List.class);
+        }
+    };
+
+    private static boolean declaredHere(Class<?> type, Class<?> param) {
+        try {
+            return type.getMethod("getTransitionString", param)
+                    .getDeclaringClass() == DefaultLabelTranslator.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param ltrans a label translator
+     * @return true if ltrans is a subclass that overrides one of the string
+     * methods
+     */
+    static boolean overridesTranslation(LabelTranslator ltrans) {
+        return ltrans instanceof DefaultLabelTranslator && !PLAIN.get(ltrans
+                .getClass());
+    }
 
     @Override
     public String getTransitionString(Transition t) {
         StringBuilder sb = new StringBuilder();
+        appendLabel(sb, new char[]{t.getMin()}, new char[]{t.getMax()}, 1);
+        return sb.toString();
+    }
 
-        if (t.getMax() == t.getMin()) {
-            sb.append(EscapeUtils.escapeSpecialCharacters(String.valueOf(t.getMin
-                    ())));
-        } else {
-            sb.append("[" + t.getMin() + "-" + t.getMax() + "]");
+    @Override
+    public String getTransitionString(List<Transition> ts) {
+        if (ts.size() == 1 || !MERGES.get(getClass()))
+            return LabelTranslator.super.getTransitionString(ts);
+
+        // merge the ranges into disjoint, non-adjacent intervals
+        int n = ts.size();
+        char [] min = new char[n];
+        char [] max = new char[n];
+        for (int i = 0; i < n; i++) {
+            min[i] = ts.get(i).getMin();
+            max[i] = ts.get(i).getMax();
+        }
+        sortByMin(min, max);
+        int k = 0;
+        for (int i = 1; i < n; i++) {
+            if (min[i] <= max[k] + 1) {
+                max[k] = (char) Math.max(max[k], max[i]);
+            } else {
+                k++;
+                min[k] = min[i];
+                max[k] = max[i];
+            }
         }
+        k++;
+
+        if (k == 1) {
+            return getTransitionString(new Transition(min[0], max[0], ts.get
+                    (0).getDest()));
+        }
+
+        StringBuilder sb = new StringBuilder();
+        appendLabel(sb, min, max, k);
         return sb.toString();
     }
+
+    @Override
+    public void appendLabel(StringBuilder sb, char[] min, char[] max, int n) {
+        if (n == 1 && min[0] == max[0]) {
+            EscapeUtils.appendCharacter(sb, min[0]);
+            return;
+        }
+
+        // pick the shorter one of the class and its complement
+        int pos = 2;
+        int neg = 3;
+        int lo = Character.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            pos += rangeLength(min[i], max[i]);
+            if (n > 1 && min[i] > lo)
+                neg += rangeLength((char) lo, (char) (min[i] - 1));
+            lo = max[i] + 1;
+        }
+        if (n > 1 && lo <= Character.MAX_VALUE)
+            neg += rangeLength((char) lo, Character.MAX_VALUE);
+
+        if (n > 1 && neg < pos) {
+            sb.append("[^");
+            lo = Character.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                if (min[i] > lo)
+                    appendRange(sb, (char) lo, (char) (min[i] - 1));
+                lo = max[i] + 1;
+            }
+            if (lo <= Character.MAX_VALUE)
+                appendRange(sb, (char) lo, Character.MAX_VALUE);
+        } else {
+            sb.append('[');
+            for (int i = 0; i < n; i++)
+                appendRange(sb, min[i], max[i]);
+        }
+        sb.append(']');
+    }
+
+    private static int rangeLength(char min, char max) {
+        int len = EscapeUtils.isClassSpecial(min) ? 2 : 1;
+        if (max == min)
+            return len;
+        if (max > min + 1)
+            len++;
+        return len + (EscapeUtils.isClassSpecial(max) ? 2 : 1);
+    }
+
+    private static void appendRange(StringBuilder sb, char min, char max) {
+        EscapeUtils.appendClassCharacter(sb, min);
+        if (max == min)
+            return;
+        // a range of two characters is not shorter than the two characters
+        if (max > min + 1)
+            sb.append('-');
+        EscapeUtils.appendClassCharacter(sb, max);
+    }
+
+    private static void sortByMin(char [] min, char [] max) {
+        // the number of parallel transitions is small
+        for (int i = 1; i < min.length; i++) {
+            char mi = min[i], ma = max[i];
+            int j = i - 1;
+            for (; j >= 0 && min[j] > mi; j--) {
+                min[j + 1] = min[j];
+                max[j + 1] = max[j];
+            }
+            min[j + 1] = mi;
+            max[j + 1] = ma;
+        }
+    }
+
+    /**
+     * @return the class name for this class; subclasses have no id unless
+     * they provide one
+     */
+    @Override
+    public String getPersistentId() {
+        return getClass() == DefaultLabelTranslator.class ? getClass()
+                .getName() : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o != null && o.getClass() == getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
 }
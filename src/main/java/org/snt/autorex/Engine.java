@@ -0,0 +1,122 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.snt.autorex.autograph.Gnfa;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The algorithms that turn a gnfa into a regular expression.
+ */
+public enum Engine {
+
+    /** sequential state elimination on the graph */
+    GRAPH {
+        @Override
+        String eliminate(Gnfa a, EliminationStrategy strategy,
+                         ConversionListener listener) {
+            return StateEliminator.INSTANCE.eliminate(a, strategy, listener);
+        }
+    },
+
+    /**
+     * state elimination that reduces the strongly connected components in
+     * parallel on the common fork-join pool; the elimination order is only
+     * optimized per component, so the result may be longer than the one of
+     * {@link #GRAPH}
+     */
+    SCC_PARALLEL {
+        @Override
+        String eliminate(Gnfa a, EliminationStrategy strategy,
+                         ConversionListener listener) {
+            return StateEliminator.INSTANCE.eliminateParallel(a, strategy,
+                    ForkJoinPool.commonPool(), listener);
+        }
+    },
+
+    /**
+     * Kleene's algorithm on a label matrix with row-parallel updates on the
+     * common fork-join pool; the elimination order is always the one of the
+     * fewest paths, hence the strategy is ignored
+     */
+    MATRIX {
+        @Override
+        String eliminate(Gnfa a, EliminationStrategy strategy,
+                         ConversionListener listener) {
+            return KleeneEliminator.INSTANCE.eliminate(a, ForkJoinPool
+                    .commonPool(), listener);
+        }
+    },
+
+    /**
+     * Brzozowski's algebraic method, the equations are solved from the
+     * states farthest from the start state backwards; the strategy is
+     * ignored
+     */
+    EQUATIONS {
+        @Override
+        String eliminate(Gnfa a, EliminationStrategy strategy,
+                         ConversionListener listener) {
+            return EquationSolver.INSTANCE.solve(a, EquationSolver.Order
+                    .REVERSE_BFS, listener);
+        }
+    },
+
+    /**
+     * {@link #MATRIX} for small and dense gnfas, {@link #GRAPH} otherwise;
+     * {@link Autorex} converts finite languages directly before a gnfa is
+     * built, which is fast but may give much longer regexps
+     */
+    AUTO {
+        @Override
+        String eliminate(Gnfa a, EliminationStrategy strategy,
+                         ConversionListener listener) {
+            return select(a).eliminate(a, strategy, listener);
+        }
+    };
+
+    // the matrix of labels grows quadratically with the number of states
+    static final int MATRIX_STATE_LIMIT = 2048;
+    static final double MATRIX_DENSITY = 0.1;
+
+    /**
+     * pick the engine for a
+     * @param a gnfa
+     * @return the engine that AUTO delegates to
+     */
+    static Engine select(Gnfa a) {
+        int n = a.vertexSet().size();
+        if (n <= MATRIX_STATE_LIMIT && KleeneEliminator.getDensity(a) >=
+                MATRIX_DENSITY)
+            return MATRIX;
+        return GRAPH;
+    }
+
+    abstract String eliminate(Gnfa a, EliminationStrategy strategy,
+                              ConversionListener listener);
+}
@@ -0,0 +1,304 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.autograph.State;
+import org.snt.autorex.autograph.Transition;
+import org.snt.autorex.regex.RegexFactory;
+import org.snt.autorex.regex.RegexNode;
+import org.snt.autorex.utils.IndexedPriorityQueue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Brzozowski's algebraic method. Every state q of the gnfa is the unknown
+ * X_q of a right-linear equation
+ *
+ *   X_q = a_1 X_1 | ... | a_n X_n | c_q
+ *
+ * where c_q is the empty word if q reaches the accepting state. An equation
+ * is solved for its unknown by Arden's lemma, X = A X | B has the solution
+ * A* B, and the solution is substituted into all the equations that refer
+ * to it. The constant terms are substituted as a whole, so if an unknown is
+ * only solved once all its successors have been solved, the common suffixes
+ * stay factored out; the default order does exactly that for acyclic parts.
+ */
+public enum EquationSolver {
+
+    INSTANCE;
+
+    /** the order in which the unknowns are solved */
+    public enum Order {
+        /** the unknowns farthest from the start state first */
+        REVERSE_BFS,
+        /** the unknown with the fewest references times terms first */
+        FEWEST_TERMS
+    }
+
+    /**
+     * solve the equations of a in the default order
+     * @param a gnfa
+     * @return the corresponding string for a regular expression.
+     */
+    public String solve(Gnfa a) {
+        return solve(a, Order.REVERSE_BFS, ConversionListener.NOOP);
+    }
+
+    /**
+     * solve the equations of a
+     * @param a gnfa
+     * @param order the order in which the unknowns are solved
+     * @param listener receives measurements of the elimination phases
+     * @return the corresponding string for a regular expression.
+     */
+    public String solve(Gnfa a, Order order, ConversionListener listener) {
+        boolean observed = listener != ConversionListener.NOOP;
+        long start = observed ? System.nanoTime() : 0L;
+
+        StateEliminator.INSTANCE.handleTrivialCases(a, listener);
+
+        if (observed) {
+            long now = System.nanoTime();
+            listener.phaseFinished(ConversionListener.Phase.TRIVIAL, now -
+                    start);
+            start = now;
+        }
+
+        Equations eq = new Equations(a);
+        if (order == Order.REVERSE_BFS) {
+            for (State s : getReverseBfsOrder(a))
+                eq.solve(a.indexOf(s), listener);
+        } else {
+            IndexedPriorityQueue<State> queue = new IndexedPriorityQueue<>
+                    (Comparator.comparingInt(State::getId));
+            for (State s : a.vertexSet()) {
+                if (s.getKind() == State.Kind.NORMAL)
+                    queue.put(s, eq.getCost(a.indexOf(s)));
+            }
+            while (!queue.isEmpty()) {
+                int k = a.indexOf(queue.poll());
+                Set<Integer> nbrs = new LinkedHashSet<>(eq.users.get(k));
+                nbrs.addAll(eq.terms.get(k).keySet());
+                eq.solve(k, listener);
+                for (int n : nbrs) {
+                    State s = a.getVertex(n);
+                    if (queue.contains(s))
+                        queue.put(s, eq.getCost(n));
+                }
+            }
+        }
+
+        RegexNode label = eq.solveStart(a.indexOf(a.getStart()));
+        return StateEliminator.INSTANCE.finish(a.getFactory(), label, start,
+                listener);
+    }
+
+    /**
+     * @param a gnfa
+     * @return the normal states of a ordered by decreasing distance from
+     * the start state
+     */
+    private static State [] getReverseBfsOrder(Gnfa a) {
+        State [] ret = new State[a.vertexSet().size()];
+        boolean [] seen = new boolean[a.getVertexLimit()];
+        Deque<Integer> work = new ArrayDeque<>();
+        int s = a.indexOf(a.getStart());
+        seen[s] = true;
+        work.add(s);
+        int n = 0;
+        while (!work.isEmpty()) {
+            int v = work.poll();
+            if (a.getVertex(v).getKind() == State.Kind.NORMAL)
+                ret[n++] = a.getVertex(v);
+            for (int i = 0; i < a.outDegreeOf(v); i++) {
+                int w = a.getOutgoingVertex(v, i);
+                if (!seen[w]) {
+                    seen[w] = true;
+                    work.add(w);
+                }
+            }
+        }
+        ret = Arrays.copyOf(ret, n);
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            State t = ret[i];
+            ret[i] = ret[j];
+            ret[j] = t;
+        }
+        return ret;
+    }
+
+    private static final class Equations {
+
+        final RegexFactory f;
+        final Gnfa a;
+        // the coefficients of the unknowns per equation
+        final List<Map<Integer, RegexNode>> terms;
+        final RegexNode [] constant;
+        // the equations that refer to an unknown
+        final List<Set<Integer>> users;
+        // the number of non-empty coefficients and constants
+        int size;
+
+        Equations(Gnfa a) {
+            this.a = a;
+            f = a.getFactory();
+            int n = a.getVertexLimit();
+            terms = new ArrayList<>(Collections.nCopies(n, null));
+            users = new ArrayList<>(Collections.nCopies(n, null));
+            constant = new RegexNode[n];
+            for (State s : a.vertexSet()) {
+                int v = a.indexOf(s);
+                terms.set(v, new LinkedHashMap<>());
+                users.set(v, new LinkedHashSet<>());
+            }
+            for (Transition t : a.edgeSet()) {
+                int i = a.indexOf(t.getSource());
+                if (t.getTarget().getKind() == State.Kind.ACCEPT) {
+                    constant[i] = f.union(constant[i], t.getLabel());
+                } else {
+                    int j = a.indexOf(t.getTarget());
+                    terms.get(i).merge(j, t.getLabel(), f::union);
+                    users.get(j).add(i);
+                }
+            }
+            for (State s : a.vertexSet()) {
+                int v = a.indexOf(s);
+                size += terms.get(v).size() + (constant[v] != null ? 1 : 0);
+            }
+        }
+
+        long getCost(int k) {
+            return (long) users.get(k).size() * (terms.get(k).size() + 1);
+        }
+
+        /**
+         * solve the equation of X_k and substitute the solution
+         */
+        void solve(int k, ConversionListener listener) {
+            arden(k);
+            Map<Integer, RegexNode> tk = terms.get(k);
+            for (int j : tk.keySet())
+                users.get(j).remove(k);
+
+            boolean observed = listener != ConversionListener.NOOP;
+            long maxLabel = 0L;
+            for (int i : users.get(k)) {
+                Map<Integer, RegexNode> ti = terms.get(i);
+                RegexNode c = ti.remove(k);
+                for (Map.Entry<Integer, RegexNode> e : tk.entrySet()) {
+                    RegexNode old = ti.get(e.getKey());
+                    ti.put(e.getKey(), addTerm(c, e.getValue(), old));
+                    if (old == null) {
+                        users.get(e.getKey()).add(i);
+                        size++;
+                    }
+                    if (observed)
+                        maxLabel = Math.max(maxLabel, ti.get(e.getKey())
+                                .length());
+                }
+                if (constant[k] != null) {
+                    if (constant[i] == null)
+                        size++;
+                    constant[i] = addTerm(c, constant[k], constant[i]);
+                    if (observed)
+                        maxLabel = Math.max(maxLabel, constant[i].length());
+                }
+            }
+
+            // the peak of the step, including the terms of X_k
+            int peak = size;
+            size -= tk.size() + users.get(k).size() + (constant[k] != null ?
+                    1 : 0);
+            terms.set(k, null);
+            users.set(k, null);
+            constant[k] = null;
+            if (observed)
+                listener.stateEliminated(a.getVertex(k), peak, maxLabel);
+        }
+
+        /**
+         * the union of c x and old; an alternative b x of old absorbs c, so
+         * that the shared suffix x is only written once
+         */
+        private RegexNode addTerm(RegexNode c, RegexNode x, RegexNode old) {
+            if (old == null || x == RegexNode.EPSILON)
+                return f.union(f.concat(c, x), old);
+
+            List<RegexNode> alts = new ArrayList<>();
+            RegexNode n = old;
+            for (; n.getKind() == RegexNode.Kind.UNION; n = n.getRight())
+                alts.add(n.getLeft());
+            alts.add(n);
+
+            for (int i = 0; i < alts.size(); i++) {
+                RegexNode alt = alts.get(i);
+                if (alt.getKind() == RegexNode.Kind.CONCAT && alt.getRight()
+                        == x) {
+                    alts.set(i, f.concat(f.union(c, alt.getLeft()), x));
+                    RegexNode ret = alts.get(alts.size() - 1);
+                    for (int j = alts.size() - 2; j >= 0; j--)
+                        ret = f.union(alts.get(j), ret);
+                    return ret;
+                }
+            }
+            return f.union(f.concat(c, x), old);
+        }
+
+        RegexNode solveStart(int s) {
+            arden(s);
+            assert terms.get(s).isEmpty();
+            return constant[s];
+        }
+
+        /**
+         * X = A X | B becomes X = A* B
+         */
+        private void arden(int k) {
+            RegexNode loop = terms.get(k).remove(k);
+            if (loop == null)
+                return;
+            users.get(k).remove(k);
+            size--;
+            RegexNode star = f.star(loop);
+            for (Map.Entry<Integer, RegexNode> e : terms.get(k).entrySet())
+                e.setValue(f.concat(star, e.getValue()));
+            if (constant[k] != null)
+                constant[k] = f.concat(star, constant[k]);
+        }
+    }
+}
@@ -43,7 +43,6 @@ public class FullTransition {
     private Transition recentlyAdded;
     private String label = "";
 
-    private int tid;
     private boolean isEpsilon = false;
     private Kind kind;
     private LabelTranslator ltrans = null;
@@ -73,8 +72,6 @@ public class FullTransition {
         }
     }
 
-    public static int id = 0;
-
     public FullTransition(State src, Transition trans, State dest,
                           LabelTranslator ltrans) {
         this.src = src;
@@ -87,7 +84,6 @@ public class FullTransition {
         }
 
         this.dest = dest;
-        this.tid = id ++;
         this.isEpsilon = false;
         this.kind = Kind.MATCH;
         this.recentlyAdded = trans;
@@ -0,0 +1,268 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.autograph.State;
+import org.snt.autorex.autograph.Transition;
+import org.snt.autorex.regex.RegexFactory;
+import org.snt.autorex.regex.RegexNode;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Kleene's algorithm in the formulation of McNaughton and Yamada. The gnfa
+ * is copied into a matrix of labels that is indexed by state number, and
+ * every step of the recurrence
+ *
+ *   R[i][j] = R[i][j] | R[i][k] R[k][k]* R[k][j]
+ *
+ * removes state k from the matrix. The rows that reach k are updated in
+ * parallel. The labels are built with the factory of the gnfa, so that
+ * common sub-expressions are shared. The matrix needs quadratic space, which
+ * is why it only pays off for small and dense automata.
+ */
+public enum KleeneEliminator {
+
+    INSTANCE;
+
+    // below this number of label updates, a step is done sequentially
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+    /**
+     * eliminate all states of a on the common fork-join pool
+     * @param a gnfa
+     * @return the corresponding string for a regular expression.
+     */
+    public String eliminate(Gnfa a) {
+        return eliminate(a, ForkJoinPool.commonPool(), ConversionListener
+                .NOOP);
+    }
+
+    /**
+     * eliminate all states of a
+     * @param a gnfa
+     * @param pool the pool that updates the rows of the matrix
+     * @param listener receives measurements of the elimination phases - it
+     *                 has to be thread-safe
+     * @return the corresponding string for a regular expression.
+     */
+    public String eliminate(Gnfa a, ForkJoinPool pool, ConversionListener
+            listener) {
+        boolean observed = listener != ConversionListener.NOOP;
+        long start = observed ? System.nanoTime() : 0L;
+
+        StateEliminator.INSTANCE.handleTrivialCases(a, listener);
+
+        if (observed) {
+            long now = System.nanoTime();
+            listener.phaseFinished(ConversionListener.Phase.TRIVIAL, now -
+                    start);
+            start = now;
+        }
+
+        Matrix m = new Matrix(a);
+        if (m.n > 2) {
+            pool.submit(() -> m.eliminate(listener)).join();
+        }
+
+        RegexNode label = m.r[m.start][m.end];
+        return StateEliminator.INSTANCE.finish(a.getFactory(), label, start,
+                listener);
+    }
+
+    private static final class Matrix {
+
+        final RegexFactory f;
+        final State [] states;
+        final RegexNode [][] r;
+        final int n;
+        final int start;
+        final int end;
+        // the number of entries per row and column, without the diagonal
+        final int [] out;
+        final AtomicIntegerArray in;
+        final boolean [] alive;
+        long edges;
+
+        Matrix(Gnfa a) {
+            f = a.getFactory();
+            n = a.vertexSet().size();
+            states = new State[n];
+            r = new RegexNode[n][n];
+            out = new int[n];
+            in = new AtomicIntegerArray(n);
+            alive = new boolean[n];
+
+            // the gnfa indices may have holes, hence the states are numbered
+            int [] num = new int[a.getVertexLimit()];
+            int k = 0;
+            int s = -1;
+            int e = -1;
+            for (State q : a.vertexSet()) {
+                num[a.indexOf(q)] = k;
+                states[k] = q;
+                alive[k] = true;
+                if (q.getKind() == State.Kind.START)
+                    s = k;
+                else if (q.getKind() == State.Kind.ACCEPT)
+                    e = k;
+                k++;
+            }
+            start = s;
+            end = e;
+
+            for (Transition t : a.edgeSet()) {
+                int i = num[a.indexOf(t.getSource())];
+                int j = num[a.indexOf(t.getTarget())];
+                r[i][j] = f.union(r[i][j], t.getLabel());
+            }
+
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (r[i][j] != null && i != j) {
+                        out[i]++;
+                        in.incrementAndGet(j);
+                        edges++;
+                    } else if (r[i][j] != null) {
+                        edges++;
+                    }
+                }
+            }
+        }
+
+        Void eliminate(ConversionListener listener) {
+            boolean observed = listener != ConversionListener.NOOP;
+            int [] rows = new int[n];
+            int [] cols = new int[n];
+            int [] added = new int[n];
+
+            for (int step = 2; step < n; step++) {
+                int k = next();
+                alive[k] = false;
+
+                int nr = 0;
+                int nc = 0;
+                for (int i = 0; i < n; i++) {
+                    if (!alive[i])
+                        continue;
+                    if (r[i][k] != null)
+                        rows[nr++] = i;
+                    if (r[k][i] != null)
+                        cols[nc++] = i;
+                }
+
+                RegexNode loop = f.star(r[k][k]);
+                final int rc = nc;
+                if ((long) nr * nc < PARALLEL_THRESHOLD) {
+                    for (int x = 0; x < nr; x++)
+                        added[x] = update(rows[x], k, loop, cols, rc);
+                } else {
+                    IntStream.range(0, nr).parallel().forEach(x -> added[x] =
+                            update(rows[x], k, loop, cols, rc));
+                }
+
+                long maxLabel = 0L;
+                for (int x = 0; x < nr; x++) {
+                    int i = rows[x];
+                    edges += added[x];
+                    out[i]--;
+                    if (observed) {
+                        for (int y = 0; y < nc; y++)
+                            maxLabel = Math.max(maxLabel, r[i][cols[y]]
+                                    .length());
+                    }
+                    r[i][k] = null;
+                }
+                for (int y = 0; y < nc; y++) {
+                    in.decrementAndGet(cols[y]);
+                    r[k][cols[y]] = null;
+                }
+                // the peak of the step, including the edges of k
+                long peak = edges;
+                edges -= nr + nc + (r[k][k] != null ? 1 : 0);
+                r[k][k] = null;
+
+                if (observed)
+                    listener.stateEliminated(states[k], (int) peak, maxLabel);
+            }
+            return null;
+        }
+
+        /**
+         * add the paths through k to row i
+         * @return the number of new entries in row i
+         */
+        private int update(int i, int k, RegexNode loop, int [] cols, int nc) {
+            RegexNode pfx = f.concat(r[i][k], loop);
+            RegexNode [] row = r[i];
+            int added = 0;
+            for (int y = 0; y < nc; y++) {
+                int j = cols[y];
+                RegexNode lbl = f.concat(pfx, r[k][j]);
+                if (row[j] == null) {
+                    added++;
+                    if (i != j) {
+                        out[i]++;
+                        in.incrementAndGet(j);
+                    }
+                }
+                row[j] = f.union(lbl, row[j]);
+            }
+            return added;
+        }
+
+        /**
+         * @return the normal state with the fewest paths through it
+         */
+        private int next() {
+            int best = -1;
+            long cost = Long.MAX_VALUE;
+            for (int k = 0; k < n; k++) {
+                if (!alive[k] || k == start || k == end)
+                    continue;
+                long c = (long) in.get(k) * out[k];
+                if (c < cost) {
+                    best = k;
+                    cost = c;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * @param a gnfa
+     * @return the share of all possible edges that are present in a
+     */
+    static double getDensity(Gnfa a) {
+        long n = a.vertexSet().size();
+        return n == 0 ? 0.0 : (double) a.edgeSet().size() / (n * n);
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+/**
+ * Writes the label of a set of characters into a caller-supplied buffer
+ * instead of returning a new string. {@link DefaultLabelTranslator} is the
+ * default implementation; any other {@link LabelTranslator} can be used
+ * through {@link #of(LabelTranslator)}.
+ */
+public interface LabelAppender {
+
+    /**
+     * append the label of the union of the given intervals to sb
+     * @param sb the buffer to append to
+     * @param min the lower bounds of the intervals
+     * @param max the upper bounds of the intervals
+     * @param n the number of intervals - they are sorted, disjoint and not
+     *          adjacent
+     */
+    void appendLabel(StringBuilder sb, char[] min, char[] max, int n);
+
+    /**
+     * @param ltrans a label translator
+     * @return ltrans itself if it is an appender whose string methods are
+     * not overridden, an adapter for ltrans otherwise
+     */
+    static LabelAppender of(LabelTranslator ltrans) {
+        if (ltrans instanceof LabelAppender && !DefaultLabelTranslator
+                .overridesTranslation(ltrans))
+            return (LabelAppender) ltrans;
+        return new TranslatorAppender(ltrans);
+    }
+}
@@ -3,6 +3,35 @@ package org.snt.autorex;
 
 import dk.brics.automaton.Transition;
 
+import java.util.List;
+
 public interface LabelTranslator {
     String getTransitionString(Transition t);
+
+    /**
+     * translate all the parallel transitions between two states into a
+     * single label; by default, this is the union of the labels of the
+     * single transitions
+     * @param ts the transitions - there is at least one
+     * @return the label
+     */
+    default String getTransitionString(List<Transition> ts) {
+        if (ts.size() == 1)
+            return getTransitionString(ts.get(0));
+        StringBuilder sb = new StringBuilder(getTransitionString(ts.get(0)));
+        for (int i = 1; i < ts.size(); i++)
+            sb.append('|').append(getTransitionString(ts.get(i)));
+        return sb.toString();
+    }
+
+    /**
+     * an identifier that names the translation across processes and
+     * restarts; two translators with the same id have to produce the same
+     * labels. Persistent caches only store the regular expressions of
+     * translators with an id.
+     * @return the id or null if the translation is not stable
+     */
+    default String getPersistentId() {
+        return null;
+    }
 }
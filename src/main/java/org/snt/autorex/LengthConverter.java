@@ -0,0 +1,152 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Direct construction of the length automaton. The lengths of the words
+ * of an automaton form a unary language whose minimal dfa is a lasso, i.e.
+ * a prefix of states followed by a cycle. The subsets of the live states
+ * reached after reading words of length 0, 1, 2, ... are computed until a
+ * subset repeats, which yields the lasso, and the lasso is then shortened
+ * to the smallest period and prefix. Every step takes time linear in the
+ * live transitions. The number of steps is bounded by the number of
+ * distinct subsets, which is small for most automata but can grow faster
+ * than any polynomial in the number of states for nondeterministic ones.
+ */
+public enum LengthConverter {
+
+    INSTANCE;
+
+    /**
+     * @param a an automaton
+     * @return the minimal deterministic automaton that accepts all the
+     * words whose length is the length of a word accepted by a
+     */
+    public Automaton getLenAutomaton(Automaton a) {
+        return getLengthSet(a).toAutomaton();
+    }
+
+    /**
+     * @param a an automaton
+     * @return the lengths of the words accepted by a
+     */
+    public LengthSet getLengthSet(Automaton a) {
+        List<State> states = Converter.getStatesInBfsOrder(a
+                .getInitialState());
+        int n = states.size();
+        Map<State, Integer> num = new HashMap<>(2 * n);
+        for (int i = 0; i < n; i++)
+            num.put(states.get(i), i);
+
+        int [][] dst = Converter.getDestinations(states, num);
+        boolean [] live = Converter.getLiveStates(states, dst);
+        if (!live[0])
+            return new LengthSet(new BitSet(), 0, 0);
+
+        // the distinct live successors of every live state
+        int [][] succ = new int[n][];
+        boolean [] fin = new boolean[n];
+        BitSet seen = new BitSet(n);
+        int [] buf = new int[n];
+        for (int v = 0; v < n; v++) {
+            if (!live[v])
+                continue;
+            fin[v] = states.get(v).isAccept();
+            seen.clear();
+            int k = 0;
+            for (int d : dst[v]) {
+                if (live[d] && !seen.get(d)) {
+                    seen.set(d);
+                    buf[k++] = d;
+                }
+            }
+            succ[v] = Arrays.copyOf(buf, k);
+        }
+
+        Map<BitSet, Integer> index = new HashMap<>();
+        BitSet accept = new BitSet();
+        BitSet cur = new BitSet(n);
+        cur.set(0);
+        int len = 0;
+        while (!cur.isEmpty()) {
+            Integer prev = index.putIfAbsent(cur, len);
+            if (prev != null)
+                return minimize(accept, prev, len - prev);
+
+            BitSet next = new BitSet(n);
+            for (int v = cur.nextSetBit(0); v >= 0; v = cur.nextSetBit(v + 1)) {
+                if (fin[v])
+                    accept.set(len);
+                for (int d : succ[v])
+                    next.set(d);
+            }
+            cur = next;
+            len++;
+        }
+        return minimize(accept, len, 0);
+    }
+
+    private static LengthSet minimize(BitSet accept, int prefix, int period) {
+        int p = prefix;
+        int c = period;
+
+        // a cycle without accepting states is the dead state
+        int last = accept.nextSetBit(p);
+        if (last < 0 || last >= p + c) {
+            p = accept.previousSetBit(p - 1) + 1;
+            return new LengthSet(accept.get(0, p), p, 0);
+        }
+
+        for (int d = 1; d < c; d++) {
+            if (c % d == 0 && isPeriodic(accept, p, c, d)) {
+                c = d;
+                break;
+            }
+        }
+        while (p > 0 && accept.get(p - 1) == accept.get(p - 1 + c))
+            p--;
+        return new LengthSet(accept.get(0, p + c), p, c);
+    }
+
+    private static boolean isPeriodic(BitSet accept, int from, int len, int
+            d) {
+        for (int i = from; i < from + len - d; i++) {
+            if (accept.get(i) != accept.get(i + d))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+import java.util.BitSet;
+
+/**
+ * The lengths of the words of a regular language, which form an
+ * ultimately periodic set: below prefix, membership is stored in a bitset,
+ * from prefix on only the residues modulo period are stored. The
+ * representation is the minimal lasso of the lengths, hence two length
+ * sets are equal if and only if they contain the same lengths.
+ */
+public final class LengthSet {
+
+    // the lengths in [0, prefix + period)
+    private final BitSet bits;
+    private final int prefix;
+    // 0 for finite sets
+    private final int period;
+
+    LengthSet(BitSet bits, int prefix, int period) {
+        this.bits = bits;
+        this.prefix = prefix;
+        this.period = period;
+    }
+
+    /**
+     * @param n a length
+     * @return true if there is a word of length n
+     */
+    public boolean contains(int n) {
+        if (n < 0)
+            return false;
+        if (n >= prefix + period) {
+            if (period == 0)
+                return false;
+            n = prefix + (n - prefix) % period;
+        }
+        return bits.get(n);
+    }
+
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    public boolean isFinite() {
+        return period == 0;
+    }
+
+    /**
+     * @return the smallest length or -1 if the set is empty
+     */
+    public int getMin() {
+        return bits.nextSetBit(0);
+    }
+
+    /**
+     * @return the largest length, -1 if the set is empty and
+     * Integer.MAX_VALUE if it is infinite
+     */
+    public int getMax() {
+        return period > 0 ? Integer.MAX_VALUE : bits.length() - 1;
+    }
+
+    /**
+     * @return the smallest length from which on the set is periodic
+     */
+    public int getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return the smallest period or 0 if the set is finite
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * @param n a length
+     * @return the smallest length greater than or equal to n in the set or
+     * -1 if there is none
+     */
+    public int next(int n) {
+        if (n < 0)
+            n = 0;
+        if (n < prefix + period) {
+            int k = bits.nextSetBit(n);
+            if (k >= 0 || period == 0)
+                return k;
+            n = prefix + period;
+        } else if (period == 0) {
+            return -1;
+        }
+        int r = prefix + (n - prefix) % period;
+        int k = bits.nextSetBit(r);
+        return k >= 0 ? n + k - r : n + bits.nextSetBit(prefix) + period - r;
+    }
+
+    /**
+     * @return the minimal deterministic automaton over the full alphabet
+     * that accepts the words whose lengths are in this set
+     */
+    public Automaton toAutomaton() {
+        int m = prefix + period;
+        if (m == 0)
+            return Automaton.makeEmpty();
+
+        State [] s = new State[m];
+        for (int i = 0; i < m; i++) {
+            s[i] = new State();
+            s[i].setAccept(bits.get(i));
+        }
+        for (int i = 0; i < m - 1; i++)
+            s[i].addTransition(new Transition(Character.MIN_VALUE, Character
+                    .MAX_VALUE, s[i + 1]));
+        if (period > 0)
+            s[m - 1].addTransition(new Transition(Character.MIN_VALUE,
+                    Character.MAX_VALUE, s[prefix]));
+
+        Automaton ret = new Automaton();
+        ret.setInitialState(s[0]);
+        ret.setDeterministic(true);
+        return ret;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof LengthSet))
+            return false;
+        LengthSet l = (LengthSet) o;
+        return prefix == l.prefix && period == l.period && bits.equals(l
+                .bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return (31 * prefix + period) * 31 + bits.hashCode();
+    }
+
+    /**
+     * @return the set as a list of lengths followed by the periodic
+     * lengths, e.g. {0, 2, 5+3k}
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(i);
+            if (i >= prefix && period > 0)
+                sb.append('+').append(period).append('k');
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -31,12 +31,19 @@ import org.slf4j.LoggerFactory;
 import org.snt.autorex.autograph.Gnfa;
 import org.snt.autorex.autograph.State;
 import org.snt.autorex.autograph.Transition;
-import org.snt.autorex.utils.Tuple;
+import org.snt.autorex.regex.RegexFactory;
+import org.snt.autorex.regex.RegexNode;
+import org.snt.autorex.utils.IndexedPriorityQueue;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashSet;
-import java.util.NoSuchElementException;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public enum StateEliminator {
 
@@ -45,133 +52,469 @@ public enum StateEliminator {
     final static Logger LOGGER = LoggerFactory.getLogger(StateEliminator.class);
 
     /**
-     * get qrip, i.e. the state to rip out
-     * @param a gnfa to analyze
-     * @return
+     * State elimination procedure based on the standard algorithm presented
+     * in Micheal Sipser et.al, Introduction to the Theory of Computation
+     * @param a gnfa
+     * @return the corresponding string for a regular expression.
      */
-    private State getQrip(Gnfa a) {
-        try {
-            return a.vertexSet().stream().filter(s -> s.getKind() != State.Kind
-                    .START && s.getKind() != State.Kind.ACCEPT).findFirst().get();
-        } catch (NoSuchElementException e) {
-            return null;
-        }
+    public String eliminate(Gnfa a) {
+        return eliminate(a, DefaultEliminationStrategy.WEIGHT);
     }
 
     /**
      * State elimination procedure based on the standard algorithm presented
      * in Micheal Sipser et.al, Introduction to the Theory of Computation
      * @param a gnfa
+     * @param strategy decides which state is ripped out next
      * @return the corresponding string for a regular expression.
      */
-    public String eliminate(Gnfa a) {
-        handleTrivialCases(a);
+    public String eliminate(Gnfa a, EliminationStrategy strategy) {
+        return eliminate(a, strategy, ConversionListener.NOOP);
+    }
 
-        while (a.vertexSet().size() > 2) {
+    /**
+     * State elimination procedure based on the standard algorithm presented
+     * in Micheal Sipser et.al, Introduction to the Theory of Computation
+     * @param a gnfa
+     * @param strategy decides which state is ripped out next
+     * @param listener receives measurements of the elimination phases
+     * @return the corresponding string for a regular expression.
+     */
+    public String eliminate(Gnfa a, EliminationStrategy strategy,
+                            ConversionListener listener) {
+        boolean observed = listener != ConversionListener.NOOP;
+        long start = observed ? System.nanoTime() : 0L;
 
-            final State qrip = getQrip(a);
+        handleTrivialCases(a, listener);
 
-            Set<State> in = a.getConnectedInStates(qrip).stream()
-                    .filter(v -> v.getKind() != State.Kind.ACCEPT)
-                    .filter(v -> !v.equals(qrip)).collect
-                            (Collectors.toSet());
+        if (observed) {
+            long now = System.nanoTime();
+            listener.phaseFinished(ConversionListener.Phase.TRIVIAL, now -
+                    start);
+            start = now;
+        }
 
-            Set<State> out = a.getConnectedOutStates(qrip).stream()
-                    .filter(v -> v.getKind() != State.Kind.START)
-                    .filter(v -> !v.equals(qrip)).collect
-                            (Collectors.toSet());
+        eliminateStates(a, getNormalStates(a), strategy, listener);
+        return finish(a, start, listener);
+    }
 
+    /**
+     * State elimination that first eliminates the interior states of all
+     * the strongly connected components in parallel. A state is interior
+     * if all its neighbours belong to its own component, hence eliminating
+     * it only affects the edges within the component. Every component is
+     * reduced on a subgraph that shares the labels with a; afterwards, the
+     * remaining states are eliminated sequentially.
+     * @param a gnfa
+     * @param strategy decides which state is ripped out next
+     * @param pool the pool that eliminates the components
+     * @param listener receives measurements of the elimination phases - it
+     *                 has to be thread-safe
+     * @return the corresponding string for a regular expression.
+     */
+    public String eliminateParallel(Gnfa a, EliminationStrategy strategy,
+                                    ForkJoinPool pool, ConversionListener
+                                            listener) {
+        boolean observed = listener != ConversionListener.NOOP;
+        long start = observed ? System.nanoTime() : 0L;
 
-            Set<Transition> trans = new HashSet<>();
+        handleTrivialCases(a, listener);
 
-            for(State qi : in) {
-                for (State qj : out) {
-                    StringBuilder lbl = new StringBuilder();
+        if (observed) {
+            long now = System.nanoTime();
+            listener.phaseFinished(ConversionListener.Phase.TRIVIAL, now -
+                    start);
+            start = now;
+        }
 
-                    if (a.containsEdge(qi, qrip) && a.getEdge(qi, qrip).getLabel().length() > 0) {
-                        lbl.append("(");
-                        lbl.append(a.getEdge(qi, qrip).getLabel());
-                        lbl.append(")");
-                    }
+        eliminateInteriors(a, strategy, pool, listener);
+        eliminateStates(a, getNormalStates(a), strategy, listener);
+        return finish(a, start, listener);
+    }
 
-                    // make one loop
-                    if (a.containsEdge(qrip, qrip) && a.getEdge(qrip, qrip)
-                            .getLabel().length() > 0) {
-                        lbl.append("(");
-                        lbl.append(a.getEdge(qrip, qrip).getLabel());
-                        lbl.append(")*");
-                    }
+    /**
+     * parallel state elimination on the given pool
+     * @param a gnfa
+     * @param pool the pool that eliminates the components
+     * @return the corresponding string for a regular expression.
+     */
+    public String eliminateParallel(Gnfa a, ForkJoinPool pool) {
+        return eliminateParallel(a, DefaultEliminationStrategy.WEIGHT, pool,
+                ConversionListener.NOOP);
+    }
 
-                    if (a.containsEdge(qrip, qj) && a.getEdge(qrip, qj)
-                            .getLabel().length() > 0) {
-                        lbl.append("(");
-                        lbl.append(a.getEdge(qrip, qj).getLabel());
-                        lbl.append(")");
-                    }
+    private void eliminateInteriors(Gnfa a, EliminationStrategy strategy,
+                                    ForkJoinPool pool, ConversionListener
+                                            listener) {
+        List<Set<State>> comps = new ArrayList<>();
+        List<List<State>> interiors = new ArrayList<>();
 
-                    if (a.containsEdge(qi, qj) && a.getEdge(qi,qj).getLabel()
-                            .length() > 0) {
-                        if (lbl.length() > 0)
-                            lbl.append("|");
-                        lbl.append(a.getEdge(qi,qj).getLabel());
-                    }
+        for (List<State> scc : a.getStronglyConnectedComponents()) {
+            if (scc.size() < 2)
+                continue;
+            Set<State> members = new HashSet<>(scc);
+            List<State> interior = new ArrayList<>();
+            for (State s : scc) {
+                if (isInterior(a, s, members))
+                    interior.add(s);
+            }
+            if (!interior.isEmpty() && interior.size() < scc.size()) {
+                comps.add(members);
+                interiors.add(interior);
+            }
+        }
+
+        if (comps.isEmpty())
+            return;
+
+        List<ForkJoinTask<Gnfa>> tasks = new ArrayList<>(comps.size());
+        for (int i = 0; i < comps.size(); i++) {
+            Gnfa sub = a.getSubgraph(comps.get(i));
+            List<State> interior = interiors.get(i);
+            tasks.add(pool.submit(() -> {
+                eliminateStates(sub, interior, strategy, listener);
+                return sub;
+            }));
+        }
+
+        // stitch the reduced components back into a; the edges that have
+        // been updated in place are shared, new edges have to be added
+        for (int i = 0; i < tasks.size(); i++) {
+            Gnfa sub = tasks.get(i).join();
+            for (State s : interiors.get(i))
+                a.removeVertex(s);
+            for (Transition t : sub.edgeSet()) {
+                if (!a.containsEdge(t))
+                    a.addEdge(t);
+            }
+        }
+    }
+
+    private static boolean isInterior(Gnfa a, State s, Set<State> members) {
+        int v = a.indexOf(s);
+        for (int i = 0; i < a.inDegreeOf(v); i++) {
+            if (!members.contains(a.getVertex(a.getIncomingVertex(v, i))))
+                return false;
+        }
+        for (int i = 0; i < a.outDegreeOf(v); i++) {
+            if (!members.contains(a.getVertex(a.getOutgoingVertex(v, i))))
+                return false;
+        }
+        return true;
+    }
+
+    private static List<State> getNormalStates(Gnfa a) {
+        List<State> ret = new ArrayList<>();
+        for (State s : a.vertexSet()) {
+            if (s.getKind() == State.Kind.NORMAL)
+                ret.add(s);
+        }
+        return ret;
+    }
+
+    /**
+     * rip out the given states
+     * @param a gnfa
+     * @param states normal states of a
+     * @param strategy decides which state is ripped out next
+     * @param listener receives measurements
+     */
+    private void eliminateStates(Gnfa a, List<State> states,
+                                 EliminationStrategy strategy,
+                                 ConversionListener listener) {
+        boolean observed = listener != ConversionListener.NOOP;
+
+        IndexedPriorityQueue<State> queue = new IndexedPriorityQueue<>
+                (Comparator.comparingInt(State::getId));
+
+        for (State s : states)
+            queue.put(s, strategy.getCost(a, s));
+
+        RegexFactory f = a.getFactory();
+        List<Transition> in = new ArrayList<>();
+        List<Transition> out = new ArrayList<>();
 
-                    if (lbl.length() > 0) {
-                        trans.add(new Transition(qi, qj, Transition.Kind.MATCH, lbl));
+        while (!queue.isEmpty()) {
+
+            final State qrip = queue.poll();
+            final int r = a.indexOf(qrip);
+
+            in.clear();
+            out.clear();
+
+            for (int i = 0; i < a.inDegreeOf(r); i++) {
+                Transition t = a.getIncomingEdge(r, i);
+                if (t.getSource().getKind() != State.Kind.ACCEPT &&
+                        a.getIncomingVertex(r, i) != r)
+                    in.add(t);
+            }
+
+            for (int i = 0; i < a.outDegreeOf(r); i++) {
+                Transition t = a.getOutgoingEdge(r, i);
+                if (t.getTarget().getKind() != State.Kind.START &&
+                        a.getOutgoingVertex(r, i) != r)
+                    out.add(t);
+            }
+
+            long maxLabel = 0L;
+            Transition self = a.getEdge(r, r);
+            RegexNode loop = self != null ? f.star(self.getLabel()) : null;
+
+            // qrip is not adjacent to any of the edges between its
+            // neighbours, hence they can be updated in place
+            for (Transition tin : in) {
+                State qi = tin.getSource();
+                int i = a.indexOf(qi);
+                // the prefix is shared by all the new transitions from qi
+                RegexNode pfx = f.concat(tin.getLabel(), loop);
+                for (Transition tout : out) {
+                    State qj = tout.getTarget();
+                    RegexNode lbl = f.concat(pfx, tout.getLabel());
+
+                    Transition direct = a.getEdge(i, a.indexOf(qj));
+                    if (direct != null) {
+                        lbl = f.union(lbl, direct.getLabel());
+                        direct.setLabel(lbl);
+                    } else if (lbl != null) {
+                        a.addEdge(new Transition(qi, qj, Transition.Kind
+                                .MATCH, lbl));
                     }
+                    if (observed && lbl != null)
+                        maxLabel = Math.max(maxLabel, lbl.length());
                 }
             }
 
+            // the peak of the step, including the edges of qrip
+            int edges = a.edgeSet().size();
             a.removeVertex(qrip);
 
-            trans.forEach(t -> {
-                if (a.containsEdge(t.getSource(), t.getTarget())) {
-                    a.getEdge(t.getSource(), t.getTarget()).setLabel(t.getLabel());
-                } else {
-                    a.addEdge(t);
-                }
-            });
+            if (observed)
+                listener.stateEliminated(qrip, edges, maxLabel);
+
+            // the costs of the neighbours have changed
+            for (Transition t : in) {
+                if (queue.contains(t.getSource()))
+                    queue.put(t.getSource(), strategy.getCost(a, t.getSource()));
+            }
+            for (Transition t : out) {
+                if (queue.contains(t.getTarget()))
+                    queue.put(t.getTarget(), strategy.getCost(a, t.getTarget()));
+            }
         }
+    }
+
+    private String finish(Gnfa a, long start, ConversionListener listener) {
+        assert a.edgeSet().size() <= 1;
+        return finish(a.getFactory(), a.edgeSet().isEmpty() ? null : a
+                .edgeSet().iterator().next().getLabel(), start, listener);
+    }
+
+    /**
+     * serialize the final label and report the end of the elimination
+     * @param f the factory of the label
+     * @param label the label of the single remaining edge, null if there
+     *              is none
+     * @param start the start time of the elimination phase
+     * @param listener receives measurements
+     * @return the regular expression
+     */
+    String finish(RegexFactory f, RegexNode label, long start,
+                  ConversionListener listener) {
+        if (label == null)
+            return AcyclicConverter.EMPTY;
+        if (listener == ConversionListener.NOOP)
+            return toRegex(f, label);
 
-        assert a.edgeSet().size() == 1;
-        return postProcess(a.edgeSet().iterator().next().getLabel().toString());
+        long now = System.nanoTime();
+        listener.phaseFinished(ConversionListener.Phase.ELIMINATE, now - start);
+        listener.eliminationFinished(label.length(), f.size());
+        String ret = toRegex(f, label);
+        listener.phaseFinished(ConversionListener.Phase.POSTPROCESS, System
+                .nanoTime() - now);
+        return ret;
     }
 
-    private String postProcess(String s) {
-        // just a bit of cleanup to remove redundant empty transitions
-        return s.replaceAll("\\)\\(\\.\\{0(,0)?\\}\\)", ")")
-                .replaceAll("\\)\\.\\{0(,0)?\\}", ")")
-                .replaceAll("\\(\\.\\{0(,0)?\\}\\)\\(", "(")
-                .replaceAll("\\.\\{0(,0)?\\}\\(", "(")
-                .replaceAll("\\*\\(\\.\\{0(,0)?\\}\\)", "*");
+    private String toRegex(RegexFactory f, RegexNode label) {
+        String s = label.toString();
+        return f.hasEpsilonText() ? postProcess(s) : s;
     }
 
-    private Tuple<Transition,Transition> getMergeTrans(Gnfa a) {
-        try {
-            Transition nxt = a.edgeSet().stream().filter(
-                    t -> a.outDegreeOf(t.getSource()) == 1 &&
-                            a.inDegreeOf(t.getTarget()) == 1 &&
-                            a.outDegreeOf(t.getTarget()) == 1
-            ).filter(t -> t.getKind() == Transition.Kind.MATCH).findFirst()
-                    .get();
+    /**
+     * remove redundant empty words, i.e., .{0} or (.{0}) that are
+     * concatenated with a parenthesized expression. Labels are built
+     * epsilon-aware, so such terms can only stem from label translators;
+     * the scan is a single linear pass that does not copy s if there is
+     * nothing to remove.
+     * @param s regular expression
+     * @return s without redundant empty words
+     */
+    String postProcess(String s) {
+        int len = s.length();
+        if (s.indexOf(".{0", 0) < 0)
+            return s;
 
-            return new Tuple(nxt, a.outgoingEdgesOf(nxt.getTarget()).iterator
-                    ().next());
-        } catch (NoSuchElementException e) {
-            return null;
+        StringBuilder sb = null;
+        int copied = 0;
+        boolean inClass = false;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i++;
+                continue;
+            }
+            if (inClass) {
+                inClass = c != ']';
+                continue;
+            }
+            if (c == '[') {
+                inClass = true;
+                continue;
+            }
+            if (c != '.' && (c != '(' || i + 1 == len || s.charAt(i + 1) !=
+                    '.'))
+                continue;
+            int eps = getEpsilonLength(s, i);
+            if (eps == 0)
+                continue;
+
+            int end = i + eps;
+            char prev = getUnescaped(s, i - 1);
+            char next = end < len ? s.charAt(end) : 0;
+            boolean group = c == '(';
+            boolean quantified = next == '*' || next == '+' || next == '?' ||
+                    next == '{';
+            if (!quantified && (prev == ')' || (group && prev == '*') ||
+                    next == '(')) {
+                if (sb == null)
+                    sb = new StringBuilder(len);
+                sb.append(s, copied, i);
+                copied = end;
+            }
+            i = end - 1;
         }
+        if (sb == null)
+            return s;
+        sb.append(s, copied, len);
+        return sb.toString();
     }
 
+    /**
+     * @return the length of the empty word .{0}, .{0,0}, (.{0}) or
+     * (.{0,0}) that starts at position i of s or 0
+     */
+    private static int getEpsilonLength(String s, int i) {
+        boolean group = s.charAt(i) == '(';
+        int j = group ? i + 1 : i;
+        int n;
+        if (s.startsWith(".{0}", j))
+            n = 4;
+        else if (s.startsWith(".{0,0}", j))
+            n = 6;
+        else
+            return 0;
+        if (!group)
+            return n;
+        return j + n < s.length() && s.charAt(j + n) == ')' ? n + 2 : 0;
+    }
+
+    /**
+     * @return the character at position i of s or 0 if it is escaped or
+     * does not exist
+     */
+    private static char getUnescaped(String s, int i) {
+        if (i < 0)
+            return 0;
+        int bs = 0;
+        for (int j = i - 1; j >= 0 && s.charAt(j) == '\\'; j--)
+            bs++;
+        return bs % 2 == 0 ? s.charAt(i) : 0;
+    }
+
+    /**
+     * Reduce the gnfa before the actual elimination. Normal states that
+     * cannot be reached or cannot reach the accept state are removed, and
+     * normal states with a single predecessor and a single successor are
+     * bypassed, which folds a self loop into the new label. A new edge that
+     * is parallel to an existing one is united with it. Only the neighbours
+     * of a reduced state are revisited, hence the number of visits is
+     * linear in the number of states.
+     * @param a gnfa
+     */
     public void handleTrivialCases(Gnfa a) {
-        Tuple<Transition, Transition> t;
-        while((t = getMergeTrans(a)) != null) {
-            Transition nt = new Transition(t.getFirst().getSource(), t
-                    .getSecond().getTarget(), Transition.Kind.MATCH, t
-                    .getFirst().getLabel().append(t.getSecond().getLabel()));
-            a.addEdge(nt);
+        handleTrivialCases(a, ConversionListener.NOOP);
+    }
+
+    void handleTrivialCases(Gnfa a, ConversionListener listener) {
+        RegexFactory f = a.getFactory();
+        Deque<State> work = new ArrayDeque<>();
+        Set<State> queued = new HashSet<>();
+        for (State s : a.vertexSet()) {
+            if (s.getKind() == State.Kind.NORMAL && queued.add(s))
+                work.add(s);
+        }
 
+        List<State> nbrs = new ArrayList<>();
+        while (!work.isEmpty()) {
+            State v = work.poll();
+            queued.remove(v);
 
-            a.removeVertex(t.getFirst().getTarget());
+            int r = a.indexOf(v);
+            Transition self = a.getEdge(r, r);
+            int loops = self != null ? 1 : 0;
+            int in = a.inDegreeOf(r) - loops;
+            int out = a.outDegreeOf(r) - loops;
+
+            if (in > 0 && out > 0 && (in > 1 || out > 1))
+                continue;
+
+            nbrs.clear();
+            Transition tin = null;
+            Transition tout = null;
+            for (int i = 0; i < a.inDegreeOf(r); i++) {
+                if (a.getIncomingVertex(r, i) != r) {
+                    tin = a.getIncomingEdge(r, i);
+                    nbrs.add(tin.getSource());
+                }
+            }
+            for (int i = 0; i < a.outDegreeOf(r); i++) {
+                if (a.getOutgoingVertex(r, i) != r) {
+                    tout = a.getOutgoingEdge(r, i);
+                    nbrs.add(tout.getTarget());
+                }
+            }
+
+            // the peak of the step; a series merge replaces at least two
+            // edges of v by a single one
+            int edges = a.edgeSet().size();
+            a.removeVertex(v);
+
+            if (in == 1 && out == 1) {
+                // series merge
+                State u = tin.getSource();
+                State w = tout.getTarget();
+                RegexNode lbl = f.concat(f.concat(tin.getLabel(), self !=
+                        null ? f.star(self.getLabel()) : null), tout
+                        .getLabel());
+                Transition direct = a.getEdge(a.indexOf(u), a.indexOf(w));
+                if (direct != null) {
+                    lbl = f.union(lbl, direct.getLabel());
+                    direct.setLabel(lbl);
+                } else {
+                    Transition.Kind k = lbl == RegexNode.EPSILON ? Transition
+                            .Kind.EPSILON : Transition.Kind.MATCH;
+                    a.addEdge(new Transition(u, w, k, lbl));
+                }
+                if (listener != ConversionListener.NOOP)
+                    listener.stateEliminated(v, edges, lbl.length());
+            } else if (listener != ConversionListener.NOOP) {
+                listener.stateEliminated(v, edges, 0L);
+            }
+
+            // a dead state is dropped together with its edges
+            for (State n : nbrs) {
+                if (n.getKind() == State.Kind.NORMAL && queued.add(n))
+                    work.add(n);
+            }
         }
     }
 }
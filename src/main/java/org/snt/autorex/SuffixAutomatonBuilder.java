@@ -0,0 +1,275 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+import java.util.Arrays;
+
+/**
+ * Builds the suffix automaton of a set of words online, as described by
+ * Blumer et al. in "The Smallest Automaton Recognizing the Subwords of a
+ * Text", generalized to several words. Every state stands for the
+ * substrings that end at the same positions, and the construction takes
+ * time linear in the total length of the words. The words can be added in
+ * any order. States and transitions live in primitive arrays; the
+ * transition of state s with label c is found through an open addressing
+ * hash table.
+ */
+public final class SuffixAutomatonBuilder {
+
+    private static final int NONE = -1;
+
+    // the longest substring of state s has length len[s]
+    private int [] len = new int[16];
+    private int [] link = new int[16];
+    // the transitions of state s form a list starting at head[s]
+    private int [] head = new int[16];
+    private int states = 0;
+
+    private int [] src = new int[16];
+    private char [] label = new char[16];
+    private int [] dest = new int[16];
+    private int [] next = new int[16];
+    private int edges = 0;
+
+    // edge index + 1 for every transition, 0 for free slots
+    private int [] table = new int[32];
+
+    // the states of the words added so far
+    private int [] ends = new int[16];
+    private int words = 0;
+    private boolean empty = false;
+
+    public SuffixAutomatonBuilder() {
+        newState(0, NONE);
+    }
+
+    /**
+     * add a word
+     * @param word the word to add
+     */
+    public void add(CharSequence word) {
+        int last = 0;
+        for (int i = 0; i < word.length(); i++)
+            last = extend(last, word.charAt(i));
+        if (last == 0)
+            empty = true;
+        if (words == ends.length)
+            ends = Arrays.copyOf(ends, 2 * words);
+        ends[words++] = last;
+    }
+
+    /**
+     * @param words the words to add
+     */
+    public void addAll(Iterable<? extends CharSequence> words) {
+        for (CharSequence w : words)
+            add(w);
+    }
+
+    /**
+     * @return the number of states of the suffix automaton
+     */
+    public int getNumberOfStates() {
+        return states;
+    }
+
+    /**
+     * @return a deterministic automaton that accepts all the substrings of
+     * the words, including the empty string
+     */
+    public Automaton toSubstringAutomaton() {
+        boolean [] accept = new boolean[states];
+        Arrays.fill(accept, true);
+        return toAutomaton(accept);
+    }
+
+    /**
+     * @return a deterministic automaton that accepts all the non-empty
+     * suffixes of the words, and the empty string if it has been added as
+     * a word
+     */
+    public Automaton toSuffixAutomaton() {
+        // the suffixes of a word are on the suffix link path of its state
+        boolean [] accept = new boolean[states];
+        for (int i = 0; i < words; i++) {
+            for (int s = ends[i]; s > 0 && !accept[s]; s = link[s])
+                accept[s] = true;
+        }
+        accept[0] = empty;
+        return toAutomaton(accept);
+    }
+
+    private int extend(int last, char c) {
+        int e = find(last, c);
+        if (e != NONE) {
+            // the word is a substring of the words added before
+            int q = dest[e];
+            return len[last] + 1 == len[q] ? q : split(last, c, q);
+        }
+
+        int cur = newState(len[last] + 1, 0);
+        int p = last;
+        for (; p != NONE && (e = find(p, c)) == NONE; p = link[p])
+            addEdge(p, c, cur);
+        if (p != NONE) {
+            int q = dest[e];
+            // split grows the arrays, hence link is only read afterwards
+            int lnk = len[p] + 1 == len[q] ? q : split(p, c, q);
+            link[cur] = lnk;
+        }
+        return cur;
+    }
+
+    /**
+     * split the state q that is reached from p with c, such that the
+     * substrings up to length len[p] + 1 get a state of their own
+     * @return the new state
+     */
+    private int split(int p, char c, int q) {
+        int clone = newState(len[p] + 1, link[q]);
+        for (int e = head[q]; e != NONE; e = next[e])
+            addEdge(clone, label[e], dest[e]);
+        link[q] = clone;
+        for (int e; p != NONE && dest[e = find(p, c)] == q; p = link[p])
+            dest[e] = clone;
+        return clone;
+    }
+
+    private Automaton toAutomaton(boolean [] accept) {
+        State [] s = new State[states];
+        for (int i = 0; i < states; i++) {
+            s[i] = new State();
+            s[i].setAccept(accept[i]);
+        }
+
+        char [] lbl = new char[16];
+        int [] dst = new int[16];
+        for (int i = 0; i < states; i++) {
+            int n = 0;
+            for (int e = head[i]; e != NONE; e = next[e]) {
+                if (n == lbl.length) {
+                    lbl = Arrays.copyOf(lbl, 2 * n);
+                    dst = Arrays.copyOf(dst, 2 * n);
+                }
+                lbl[n] = label[e];
+                dst[n++] = dest[e];
+            }
+            sortByLabel(lbl, dst, n);
+
+            // adjacent labels with the same target form a single range
+            for (int k = 0; k < n; ) {
+                int j = k + 1;
+                while (j < n && dst[j] == dst[k] && lbl[j] == lbl[j - 1] + 1)
+                    j++;
+                s[i].addTransition(new Transition(lbl[k], lbl[j - 1],
+                        s[dst[k]]));
+                k = j;
+            }
+        }
+
+        Automaton ret = new Automaton();
+        ret.setInitialState(s[0]);
+        ret.setDeterministic(true);
+        return ret;
+    }
+
+    private static void sortByLabel(char [] lbl, int [] dst, int n) {
+        for (int i = 1; i < n; i++) {
+            char l = lbl[i];
+            int d = dst[i];
+            int j = i - 1;
+            for (; j >= 0 && lbl[j] > l; j--) {
+                lbl[j + 1] = lbl[j];
+                dst[j + 1] = dst[j];
+            }
+            lbl[j + 1] = l;
+            dst[j + 1] = d;
+        }
+    }
+
+    private int newState(int l, int lnk) {
+        if (states == len.length) {
+            len = Arrays.copyOf(len, 2 * states);
+            link = Arrays.copyOf(link, 2 * states);
+            head = Arrays.copyOf(head, 2 * states);
+        }
+        len[states] = l;
+        link[states] = lnk;
+        head[states] = NONE;
+        return states++;
+    }
+
+    private int find(int s, char c) {
+        int mask = table.length - 1;
+        for (int i = hash(s, c) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int e = table[i] - 1;
+            if (src[e] == s && label[e] == c)
+                return e;
+        }
+        return NONE;
+    }
+
+    private void addEdge(int s, char c, int d) {
+        if (edges == src.length) {
+            src = Arrays.copyOf(src, 2 * edges);
+            label = Arrays.copyOf(label, 2 * edges);
+            dest = Arrays.copyOf(dest, 2 * edges);
+            next = Arrays.copyOf(next, 2 * edges);
+        }
+        src[edges] = s;
+        label[edges] = c;
+        dest[edges] = d;
+        next[edges] = head[s];
+        head[s] = edges;
+        insert(table, edges);
+        edges++;
+
+        if (2 * edges > table.length) {
+            int [] t = new int[2 * table.length];
+            for (int e = 0; e < edges; e++)
+                insert(t, e);
+            table = t;
+        }
+    }
+
+    private void insert(int [] t, int e) {
+        int mask = t.length - 1;
+        int i = hash(src[e], label[e]) & mask;
+        while (t[i] != 0)
+            i = (i + 1) & mask;
+        t[i] = e + 1;
+    }
+
+    private static int hash(int s, char c) {
+        int h = (s * 31 + c) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Transition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * adapter that makes a plain label translator usable as label appender
+ */
+final class TranslatorAppender implements LabelAppender {
+
+    private final LabelTranslator ltrans;
+
+    TranslatorAppender(LabelTranslator ltrans) {
+        this.ltrans = ltrans;
+    }
+
+    @Override
+    public void appendLabel(StringBuilder sb, char[] min, char[] max, int n) {
+        List<Transition> ts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            ts.add(new Transition(min[i], max[i], null));
+        sb.append(ltrans.getTransitionString(ts));
+    }
+}
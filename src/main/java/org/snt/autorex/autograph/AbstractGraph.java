@@ -28,149 +28,586 @@ package org.snt.autorex.autograph;
 
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.EdgeFactory;
-import org.jgrapht.graph.DirectedPseudograph;
 
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
- * A class that represents a graph data structure
+ * A class that represents a graph data structure. There is at most one
+ * edge between an ordered pair of states.
+ *
+ * Every state is mapped to a vertex index and every transition to an edge
+ * index. The adjacency of a vertex is kept in primitive arrays of edge
+ * indices so that the neighbourhood of a vertex can be traversed without
+ * allocating by means of the index based methods, e.g.,
+ * {@link #inDegreeOf(int)} and {@link #getIncomingEdge(int, int)}. The
+ * methods of the {@link DirectedGraph} interface are implemented on top
+ * of them; the returned sets are unmodifiable views.
  */
 public class AbstractGraph implements DirectedGraph<State, Transition> {
 
-    private final DirectedPseudograph<State, Transition> delegate;
+    private static final int KINDS = Transition.Kind.values().length;
+
+    private final EdgeFactory<State, Transition> edgeFactory = new EdgeFact();
+
+    // vertices
+    private final Map<State, Integer> index = new HashMap<>();
+    private State[] vertices = new State[16];
+    private int[][] out = new int[16][];
+    private int[][] in = new int[16][];
+    private int[] outSize = new int[16];
+    private int[] inSize = new int[16];
+    private int[][] inKind = new int[KINDS][16];
+    private int[][] outKind = new int[KINDS][16];
+    private int vertexLimit = 0;
+    private int vertexCount = 0;
+    private int[] freeVertices = new int[16];
+    private int freeVertexCount = 0;
+
+    // edges
+    private Transition[] edges = new Transition[16];
+    private int[] edgeSrc = new int[16];
+    private int[] edgeDst = new int[16];
+    private byte[] edgeKind = new byte[16];
+    private int edgeLimit = 0;
+    private int edgeCount = 0;
+    private int[] freeEdges = new int[16];
+    private int freeEdgeCount = 0;
 
     public AbstractGraph() {
-        this.delegate = new DirectedPseudograph<>(new EdgeFact());
     }
 
-    public boolean addEdge(State arg0, State arg1, Transition arg2) {
-        return delegate.addEdge(arg0, arg1, arg2);
+    // index based access
+
+    /**
+     * @return an upper bound for the indices of the vertices
+     */
+    public int getVertexLimit() {
+        return vertexLimit;
     }
 
-    public Transition addEdge(State arg0, State arg1) {
-        return delegate.addEdge(arg0, arg1);
+    /**
+     * @param v a state
+     * @return the vertex index of v or -1 if v is not part of the graph
+     */
+    public int indexOf(State v) {
+        Integer idx = index.get(v);
+        return idx == null ? -1 : idx;
     }
 
-    public boolean addVertex(State arg0) {
-        return delegate.addVertex(arg0);
+    /**
+     * @param v vertex index
+     * @return the state with vertex index v
+     */
+    public State getVertex(int v) {
+        return vertices[v];
     }
 
-    public boolean containsEdge(Transition arg0) {
-        return delegate.containsEdge(arg0);
+    public int inDegreeOf(int v) {
+        return inSize[v];
     }
 
-    public boolean containsEdge(State arg0, State arg1) {
-        return delegate.containsEdge(arg0, arg1);
+    public int outDegreeOf(int v) {
+        return outSize[v];
     }
 
-    public boolean containsVertex(State arg0) {
-        return delegate.containsVertex(arg0);
+    /**
+     * @param v vertex index
+     * @param k transition kind
+     * @return the number of incoming edges of kind k
+     */
+    public int inDegreeOf(int v, Transition.Kind k) {
+        return inKind[k.ordinal()][v];
     }
 
-    public int degreeOf(State arg0) {
-        return delegate.degreeOf(arg0);
+    /**
+     * @param v vertex index
+     * @param k transition kind
+     * @return the number of outgoing edges of kind k
+     */
+    public int outDegreeOf(int v, Transition.Kind k) {
+        return outKind[k.ordinal()][v];
     }
 
-    public Set<Transition> edgeSet() {
-        return delegate.edgeSet();
+    /**
+     * @param v vertex index
+     * @param i position in [0, inDegreeOf(v))
+     * @return the i-th incoming edge of vertex v
+     */
+    public Transition getIncomingEdge(int v, int i) {
+        return edges[in[v][i]];
     }
 
+    /**
+     * @param v vertex index
+     * @param i position in [0, outDegreeOf(v))
+     * @return the i-th outgoing edge of vertex v
+     */
+    public Transition getOutgoingEdge(int v, int i) {
+        return edges[out[v][i]];
+    }
 
-    public Set<Transition> edgesOf(State arg0) {
-        return delegate.edgesOf(arg0);
+    /**
+     * @param v vertex index
+     * @param i position in [0, inDegreeOf(v))
+     * @return the vertex index of the source of the i-th incoming edge
+     */
+    public int getIncomingVertex(int v, int i) {
+        return edgeSrc[in[v][i]];
     }
 
-    @SuppressWarnings("unchecked")
-    public boolean equals(Object obj) {
-        if (this == obj) {
-            return true;
-        } else if (obj == null) {
+    /**
+     * @param v vertex index
+     * @param i position in [0, outDegreeOf(v))
+     * @return the vertex index of the target of the i-th outgoing edge
+     */
+    public int getOutgoingVertex(int v, int i) {
+        return edgeDst[out[v][i]];
+    }
+
+    /**
+     * @param src vertex index of the source
+     * @param dst vertex index of the target
+     * @return the edge from src to dst or null if there is none
+     */
+    public Transition getEdge(int src, int dst) {
+        int e = findEdge(src, dst);
+        return e < 0 ? null : edges[e];
+    }
+
+    public boolean containsEdge(int src, int dst) {
+        return findEdge(src, dst) >= 0;
+    }
+
+    private int findEdge(int src, int dst) {
+        if (outSize[src] <= inSize[dst]) {
+            int[] adj = out[src];
+            for (int i = 0; i < outSize[src]; i++) {
+                if (edgeDst[adj[i]] == dst)
+                    return adj[i];
+            }
+        } else {
+            int[] adj = in[dst];
+            for (int i = 0; i < inSize[dst]; i++) {
+                if (edgeSrc[adj[i]] == src)
+                    return adj[i];
+            }
+        }
+        return -1;
+    }
+
+    private int findEdge(State src, State dst) {
+        int s = indexOf(src);
+        int d = indexOf(dst);
+        if (s < 0 || d < 0)
+            return -1;
+        return findEdge(s, d);
+    }
+
+    // mutation
+
+    public boolean addVertex(State arg0) {
+        if (arg0 == null)
+            throw new NullPointerException();
+        if (index.containsKey(arg0))
             return false;
-        } else if (!(obj instanceof AbstractGraph)) {
+
+        int v;
+        if (freeVertexCount > 0) {
+            v = freeVertices[--freeVertexCount];
+        } else {
+            if (vertexLimit == vertices.length)
+                growVertices();
+            v = vertexLimit++;
+        }
+        vertices[v] = arg0;
+        if (out[v] == null) {
+            out[v] = new int[4];
+            in[v] = new int[4];
+        }
+        outSize[v] = 0;
+        inSize[v] = 0;
+        for (int k = 0; k < KINDS; k++) {
+            inKind[k][v] = 0;
+            outKind[k][v] = 0;
+        }
+        index.put(arg0, v);
+        vertexCount++;
+        return true;
+    }
+
+    private void growVertices() {
+        int n = vertices.length * 2;
+        vertices = Arrays.copyOf(vertices, n);
+        out = Arrays.copyOf(out, n);
+        in = Arrays.copyOf(in, n);
+        outSize = Arrays.copyOf(outSize, n);
+        inSize = Arrays.copyOf(inSize, n);
+        for (int k = 0; k < KINDS; k++) {
+            inKind[k] = Arrays.copyOf(inKind[k], n);
+            outKind[k] = Arrays.copyOf(outKind[k], n);
+        }
+    }
+
+    public boolean addEdge(State arg0, State arg1, Transition arg2) {
+        if (arg2 == null)
+            throw new NullPointerException();
+        int s = indexOf(arg0);
+        int d = indexOf(arg1);
+        if (s < 0 || d < 0)
+            throw new IllegalArgumentException("no such vertex in graph");
+        if (findEdge(s, d) >= 0)
             return false;
+
+        int e;
+        if (freeEdgeCount > 0) {
+            e = freeEdges[--freeEdgeCount];
         } else {
-            AbstractGraph other = (AbstractGraph) obj;
-            DirectedPseudograph<State, Transition> otherDelegate = (DirectedPseudograph<State, Transition>) other.delegate;
-            return delegate.equals(otherDelegate);
+            if (edgeLimit == edges.length) {
+                int n = edges.length * 2;
+                edges = Arrays.copyOf(edges, n);
+                edgeSrc = Arrays.copyOf(edgeSrc, n);
+                edgeDst = Arrays.copyOf(edgeDst, n);
+                edgeKind = Arrays.copyOf(edgeKind, n);
+            }
+            e = edgeLimit++;
+        }
+        edges[e] = arg2;
+        edgeSrc[e] = s;
+        edgeDst[e] = d;
+        edgeKind[e] = (byte) arg2.getKind().ordinal();
+
+        if (outSize[s] == out[s].length)
+            out[s] = Arrays.copyOf(out[s], outSize[s] * 2);
+        out[s][outSize[s]++] = e;
+        if (inSize[d] == in[d].length)
+            in[d] = Arrays.copyOf(in[d], inSize[d] * 2);
+        in[d][inSize[d]++] = e;
+
+        outKind[edgeKind[e]][s]++;
+        inKind[edgeKind[e]][d]++;
+        edgeCount++;
+        return true;
+    }
+
+    public Transition addEdge(State arg0, State arg1) {
+        Transition t = edgeFactory.createEdge(arg0, arg1);
+        return addEdge(arg0, arg1, t) ? t : null;
+    }
+
+    private void removeEdge(int e) {
+        int s = edgeSrc[e];
+        int d = edgeDst[e];
+        outSize[s] = removeFrom(out[s], outSize[s], e);
+        inSize[d] = removeFrom(in[d], inSize[d], e);
+        outKind[edgeKind[e]][s]--;
+        inKind[edgeKind[e]][d]--;
+
+        edges[e] = null;
+        if (freeEdgeCount == freeEdges.length)
+            freeEdges = Arrays.copyOf(freeEdges, freeEdgeCount * 2);
+        freeEdges[freeEdgeCount++] = e;
+        edgeCount--;
+    }
+
+    private static int removeFrom(int[] adj, int size, int e) {
+        for (int i = 0; i < size; i++) {
+            if (adj[i] == e) {
+                System.arraycopy(adj, i + 1, adj, i, size - i - 1);
+                return size - 1;
+            }
+        }
+        return size;
+    }
+
+    public boolean removeEdge(Transition arg0) {
+        if (arg0 == null)
+            return false;
+        int e = findEdge(arg0.getSource(), arg0.getTarget());
+        if (e < 0)
+            return false;
+        removeEdge(e);
+        return true;
+    }
+
+    public Transition removeEdge(State arg0, State arg1) {
+        int e = findEdge(arg0, arg1);
+        if (e < 0)
+            return null;
+        Transition t = edges[e];
+        removeEdge(e);
+        return t;
+    }
+
+    public boolean removeAllEdges(Collection<? extends Transition> arg0) {
+        boolean modified = false;
+        for (Transition t : arg0) {
+            modified |= removeEdge(t);
+        }
+        return modified;
+    }
+
+    public Set<Transition> removeAllEdges(State arg0, State arg1) {
+        Transition t = removeEdge(arg0, arg1);
+        return t == null ? Collections.emptySet() : Collections.singleton(t);
+    }
+
+    public boolean removeVertex(State arg0) {
+        Integer idx = index.remove(arg0);
+        if (idx == null)
+            return false;
+        int v = idx;
+        while (outSize[v] > 0)
+            removeEdge(out[v][outSize[v] - 1]);
+        while (inSize[v] > 0)
+            removeEdge(in[v][inSize[v] - 1]);
+
+        vertices[v] = null;
+        if (freeVertexCount == freeVertices.length)
+            freeVertices = Arrays.copyOf(freeVertices, freeVertexCount * 2);
+        freeVertices[freeVertexCount++] = v;
+        vertexCount--;
+        return true;
+    }
+
+    public boolean removeAllVertices(Collection<? extends State> arg0) {
+        boolean modified = false;
+        for (State s : new HashSet<>(arg0)) {
+            modified |= removeVertex(s);
         }
+        return modified;
     }
 
+    // DirectedGraph interface
+
+    public boolean containsEdge(Transition arg0) {
+        return arg0 != null && findEdge(arg0.getSource(), arg0.getTarget())
+                >= 0;
+    }
+
+    public boolean containsEdge(State arg0, State arg1) {
+        return findEdge(arg0, arg1) >= 0;
+    }
+
+    public boolean containsVertex(State arg0) {
+        return index.containsKey(arg0);
+    }
+
+    public int degreeOf(State arg0) {
+        return inDegreeOf(arg0) + outDegreeOf(arg0);
+    }
 
     public Set<Transition> getAllEdges(State arg0, State arg1) {
-        return delegate.getAllEdges(arg0, arg1);
+        if (!containsVertex(arg0) || !containsVertex(arg1))
+            return null;
+        Transition t = getEdge(arg0, arg1);
+        return t == null ? Collections.emptySet() : Collections.singleton(t);
     }
 
     public Transition getEdge(State arg0, State arg1) {
-        return delegate.getEdge(arg0, arg1);
+        int e = findEdge(arg0, arg1);
+        return e < 0 ? null : edges[e];
     }
 
     public EdgeFactory<State, Transition> getEdgeFactory() {
-        return delegate.getEdgeFactory();
+        return edgeFactory;
     }
 
     public State getEdgeSource(Transition arg0) {
-        return delegate.getEdgeSource(arg0);
+        return arg0.getSource();
     }
 
     public State getEdgeTarget(Transition arg0) {
-        return delegate.getEdgeTarget(arg0);
+        return arg0.getTarget();
     }
 
     public double getEdgeWeight(Transition arg0) {
-        return delegate.getEdgeWeight(arg0);
-    }
-
-    public int hashCode() {
-        return delegate.hashCode();
+        return 1.0;
     }
 
     public int inDegreeOf(State arg0) {
-        return delegate.inDegreeOf(arg0);
+        return inSize[vertexIndex(arg0)];
     }
 
-    public Set<Transition> incomingEdgesOf(State arg0) {
-        return delegate.incomingEdgesOf(arg0);
+    public int outDegreeOf(State arg0) {
+        return outSize[vertexIndex(arg0)];
     }
 
-    public int outDegreeOf(State arg0) {
-        return delegate.outDegreeOf(arg0);
+    /**
+     * @param v a state
+     * @return the vertex index of v
+     * @throws IllegalArgumentException if v is not part of the graph
+     */
+    protected int vertexIndex(State v) {
+        int idx = indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("no such vertex in graph");
+        return idx;
     }
 
-    public Set<Transition> outgoingEdgesOf(State arg0) {
-        return delegate.outgoingEdgesOf(arg0);
+    public Set<Transition> incomingEdgesOf(State arg0) {
+        return new AdjacencySet(vertexIndex(arg0), true);
     }
 
-    public boolean removeAllEdges(Collection<? extends Transition> arg0) {
-        return delegate.removeAllEdges(arg0);
+    public Set<Transition> outgoingEdgesOf(State arg0) {
+        return new AdjacencySet(vertexIndex(arg0), false);
     }
 
-    public Set<Transition> removeAllEdges(State arg0, State arg1) {
-        return delegate.removeAllEdges(arg0, arg1);
+    public Set<Transition> edgesOf(State arg0) {
+        Set<Transition> ret = new LinkedHashSet<>(incomingEdgesOf(arg0));
+        ret.addAll(outgoingEdgesOf(arg0));
+        return Collections.unmodifiableSet(ret);
     }
 
-    public boolean removeAllVertices(Collection<? extends State> arg0) {
-        return delegate.removeAllVertices(arg0);
+    public Set<State> vertexSet() {
+        return new AbstractSet<State>() {
+            @Override
+            public Iterator<State> iterator() {
+                return new SlotIterator<>(vertices, vertexLimit);
+            }
+
+            @Override
+            public int size() {
+                return vertexCount;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof State && containsVertex((State) o);
+            }
+        };
     }
 
-    public boolean removeEdge(Transition arg0) {
-        return delegate.removeEdge(arg0);
+    public Set<Transition> edgeSet() {
+        return new AbstractSet<Transition>() {
+            @Override
+            public Iterator<Transition> iterator() {
+                return new SlotIterator<>(edges, edgeLimit);
+            }
+
+            @Override
+            public int size() {
+                return edgeCount;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Transition && containsEdge((Transition) o);
+            }
+        };
     }
 
-    public Transition removeEdge(State arg0, State arg1) {
-        return delegate.removeEdge(arg0, arg1);
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof AbstractGraph)) {
+            return false;
+        } else {
+            AbstractGraph other = (AbstractGraph) obj;
+            return vertexSet().equals(other.vertexSet()) &&
+                    edgeSet().equals(other.edgeSet());
+        }
     }
 
-    public boolean removeVertex(State arg0) {
-        return delegate.removeVertex(arg0);
+    @Override
+    public int hashCode() {
+        return 31 * vertexSet().hashCode() + edgeSet().hashCode();
     }
 
+    @Override
     public String toString() {
-        return delegate.toString();
+        return "(" + vertexSet() + ", " + edgeSet() + ")";
     }
 
-    public Set<State> vertexSet() {
-        return delegate.vertexSet();
+    /**
+     * iterates over the occupied slots of a vertex or edge table
+     */
+    private static class SlotIterator<T> implements Iterator<T> {
+        private final T[] slots;
+        private final int limit;
+        private int pos = -1;
+
+        SlotIterator(T[] slots, int limit) {
+            this.slots = slots;
+            this.limit = limit;
+            advance();
+        }
+
+        private void advance() {
+            do {
+                pos++;
+            } while (pos < limit && slots[pos] == null);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos < limit;
+        }
+
+        @Override
+        public T next() {
+            if (pos >= limit)
+                throw new NoSuchElementException();
+            T ret = slots[pos];
+            advance();
+            return ret;
+        }
     }
 
+    /**
+     * view on the incoming or outgoing edges of a vertex
+     */
+    private class AdjacencySet extends AbstractSet<Transition> {
+        private final int v;
+        private final boolean incoming;
+
+        AdjacencySet(int v, boolean incoming) {
+            this.v = v;
+            this.incoming = incoming;
+        }
+
+        @Override
+        public Iterator<Transition> iterator() {
+            return new Iterator<Transition>() {
+                private int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < size();
+                }
+
+                @Override
+                public Transition next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    return incoming ? getIncomingEdge(v, i++) :
+                            getOutgoingEdge(v, i++);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return incoming ? inSize[v] : outSize[v];
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Transition))
+                return false;
+            Transition t = (Transition) o;
+            int e = findEdge(t.getSource(), t.getTarget());
+            return e >= 0 && (incoming ? edgeDst[e] : edgeSrc[e]) == v;
+        }
+    }
 }
@@ -28,10 +28,13 @@ package org.snt.autorex.autograph;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snt.autorex.regex.RegexFactory;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * A generalized non-deterministic finite automaton
@@ -43,31 +46,85 @@ public class Gnfa extends AbstractGraph implements Cloneable {
     private State start;
     private State end;
 
+    private final RegexFactory factory;
+
+    // ids are allocated per gnfa so that conversions do not share state
+    private int stateCount = 0;
+
+    public Gnfa() {
+        this(new RegexFactory());
+    }
+
+    private Gnfa(RegexFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * create a state with an id that is unique within this gnfa; the state
+     * is not added to the gnfa
+     * @param kind the kind of state
+     * @return a fresh state
+     */
+    public State createState(State.Kind kind) {
+        return new State(kind, ++stateCount);
+    }
+
+    /**
+     * @return the factory for creating the labels of this gnfa
+     */
+    public RegexFactory getFactory() {
+        return factory;
+    }
+
     public Set<Transition> getIncomingEdgesOfKind(State n, Transition.Kind k) {
-        return super.incomingEdgesOf(n).stream().filter(e -> e.getKind() ==
-                k).collect(Collectors.toSet());
+        int v = vertexIndex(n);
+        Set<Transition> ret = new HashSet<>();
+        if (inDegreeOf(v, k) == 0)
+            return ret;
+        for (int i = 0; i < inDegreeOf(v); i++) {
+            Transition t = getIncomingEdge(v, i);
+            if (t.getKind() == k)
+                ret.add(t);
+        }
+        return ret;
     }
 
     public Set<Transition> getOutgoingEdgesOfKind(State n, Transition.Kind k) {
-        return super.outgoingEdgesOf(n).stream().filter(e -> e.getKind() ==
-                k).collect(Collectors.toSet());
+        int v = vertexIndex(n);
+        Set<Transition> ret = new HashSet<>();
+        if (outDegreeOf(v, k) == 0)
+            return ret;
+        for (int i = 0; i < outDegreeOf(v); i++) {
+            Transition t = getOutgoingEdge(v, i);
+            if (t.getKind() == k)
+                ret.add(t);
+        }
+        return ret;
     }
 
     public Set<State> getConnectedInStates(State s) {
-        return incomingEdgesOf(s).stream().map(Transition::getSource).collect
-                (Collectors.toSet());
+        int v = vertexIndex(s);
+        Set<State> ret = new HashSet<>();
+        for (int i = 0; i < inDegreeOf(v); i++) {
+            ret.add(getVertex(getIncomingVertex(v, i)));
+        }
+        return ret;
     }
 
     public Set<State> getConnectedOutStates(State s) {
-        return outgoingEdgesOf(s).stream().map(Transition::getTarget).collect
-                (Collectors.toSet());
+        int v = vertexIndex(s);
+        Set<State> ret = new HashSet<>();
+        for (int i = 0; i < outDegreeOf(v); i++) {
+            ret.add(getVertex(getOutgoingVertex(v, i)));
+        }
+        return ret;
     }
 
     public void addEdge(Transition e) {
         State src = e.getSource();
         State dst = e.getTarget();
-        super.addVertex(src);
-        super.addVertex(dst);
+        addVertex(src);
+        addVertex(dst);
         super.addEdge(src,dst, e);
     }
 
@@ -160,19 +217,23 @@ public class Gnfa extends AbstractGraph implements Cloneable {
 
 
     /**
-     * get a subgraph
+     * get a subgraph that shares states, transitions and the label factory
+     * with this gnfa
      * @param vertices set of vertices
      * @return the subgraph that connects all vertices in the given set
      */
-    private Gnfa subgraph(Collection<State> vertices) {
-        Gnfa g = new Gnfa();
+    public Gnfa getSubgraph(Set<State> vertices) {
+        Gnfa g = new Gnfa(factory);
+        g.stateCount = stateCount;
 
         for (State n : vertices) {
             g.addVertex(n);
         }
 
         for (State n : vertices) {
-            for (Transition e : outgoingEdgesOf(n)) {
+            int v = vertexIndex(n);
+            for (int i = 0; i < outDegreeOf(v); i++) {
+                Transition e = getOutgoingEdge(v, i);
                 if (vertices.contains(e.getTarget())) {
                     g.addEdge(e);
                 }
@@ -181,4 +242,67 @@ public class Gnfa extends AbstractGraph implements Cloneable {
         return g;
     }
 
+    /**
+     * compute the strongly connected components with an iterative version
+     * of Tarjan's algorithm
+     * @return the components in reverse topological order
+     */
+    public List<List<State>> getStronglyConnectedComponents() {
+        int n = getVertexLimit();
+        int[] idx = new int[n];
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int sp = 0;
+        int[] calls = new int[n];
+        int[] next = new int[n];
+        int cp = 0;
+        int counter = 0;
+        Arrays.fill(idx, -1);
+
+        List<List<State>> ret = new ArrayList<>();
+        for (int root = 0; root < n; root++) {
+            if (getVertex(root) == null || idx[root] >= 0)
+                continue;
+
+            idx[root] = low[root] = counter++;
+            stack[sp++] = root;
+            onStack[root] = true;
+            calls[cp] = root;
+            next[cp++] = 0;
+
+            while (cp > 0) {
+                int v = calls[cp - 1];
+                if (next[cp - 1] < outDegreeOf(v)) {
+                    int w = getOutgoingVertex(v, next[cp - 1]++);
+                    if (idx[w] < 0) {
+                        idx[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        calls[cp] = w;
+                        next[cp++] = 0;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], idx[w]);
+                    }
+                    continue;
+                }
+
+                cp--;
+                if (cp > 0)
+                    low[calls[cp - 1]] = Math.min(low[calls[cp - 1]], low[v]);
+
+                if (low[v] == idx[v]) {
+                    List<State> comp = new ArrayList<>();
+                    int w;
+                    do {
+                        w = stack[--sp];
+                        onStack[w] = false;
+                        comp.add(getVertex(w));
+                    } while (w != v);
+                    ret.add(comp);
+                }
+            }
+        }
+        return ret;
+    }
 }
@@ -26,8 +26,6 @@
 
 package org.snt.autorex.autograph;
 
-import java.math.BigInteger;
-
 public class State implements Cloneable {
     public enum Kind {
         NORMAL,
@@ -37,45 +35,47 @@ public class State implements Cloneable {
 
     private Kind kind = Kind.NORMAL;
 
-    private static BigInteger cnt = new BigInteger("0");
-
-    private BigInteger id = new BigInteger("0");
+    private final int id;
 
     public State(State s) {
         this.kind = s.kind;
         this.id = s.id;
     }
 
-    public State(Kind kind) {
-        cnt = cnt.add(new BigInteger("1"));
-        id = cnt;
+    /**
+     * the id has to be unique within a gnfa - use
+     * {@link Gnfa#createState(Kind)} to obtain fresh states
+     * @param kind the kind of state
+     * @param id state identifier
+     */
+    public State(Kind kind, int id) {
+        this.id = id;
         this.kind = kind;
     }
 
-    private State() {
-        this(Kind.NORMAL);
-    }
-
     public State clone() {
         return new State(this);
     }
 
     @Override
     public boolean equals(Object o) {
+        if(this == o)
+            return true;
+
         if(!(o instanceof State))
             return false;
 
         State s = (State)o;
 
-        return s.kind == this.kind && s.id.equals(this.id);
+        return s.id == this.id && s.kind == this.kind;
     }
 
     @Override
     public int hashCode() {
-        return this.id.hashCode();
+        return this.id;
     }
 
-    public BigInteger getId() {
+    public int getId() {
         return this.id;
     }
 
@@ -26,6 +26,7 @@
 
 package org.snt.autorex.autograph;
 
+import org.snt.autorex.regex.RegexNode;
 
 public class Transition implements Cloneable {
 
@@ -62,29 +63,25 @@ public class Transition implements Cloneable {
         this.prop = prop;
     }
 
-    private StringBuilder m = new StringBuilder();
+    private RegexNode m = null;
     private State src = null;
     private State dst = null;
+    private int hash = 0;
 
 
-    public Transition(State src, State dst, Kind k, StringBuilder m) {
+    public Transition(State src, State dst, Kind k, RegexNode m) {
         this(src,dst,k);
         this.m = m;
     }
 
-
-    public Transition(State src, State dst, Kind k, String s) {
-        this(src,dst,k);
-        this.m.append(s);
-    }
-
     public Transition(State src, State dst, Kind k) {
         this.src = src;
         this.dst = dst;
         this.kind = k;
+        rehash();
 
         if(k == Kind.EPSILON)
-            this.m = new StringBuilder(".{0}");
+            this.m = RegexNode.EPSILON;
     }
 
     public Kind getKind() {
@@ -101,10 +98,17 @@ public class Transition implements Cloneable {
 
     public void setSource(State src) {
         this.src = src;
+        rehash();
     }
 
     public void setTarget(State dst) {
         this.dst = dst;
+        rehash();
+    }
+
+    private void rehash() {
+        this.hash = 31 * (src != null ? src.hashCode() : 0) + (dst != null ?
+                dst.hashCode() : 0);
     }
 
     public boolean contains(State s) {
@@ -116,35 +120,41 @@ public class Transition implements Cloneable {
         return new Transition(src,dst,kind,m);
     }
 
-    public StringBuilder getLabel() {
+    /**
+     * @return the label of this transition or null if it has no label
+     */
+    public RegexNode getLabel() {
         return m;
     }
 
     @Override
     public String toString() {
-        return src.getDotLabel() + " -(" + m.toString() + ")>" + dst.getDotLabel();
+        return src.getDotLabel() + " -(" + m + ")>" + dst.getDotLabel();
     }
 
-    public void setLabel(StringBuilder lbl) {
+    public void setLabel(RegexNode lbl) {
         this.m = lbl;
     }
 
 
     @Override
     public int hashCode() {
-        return String.valueOf(src.getDotLabel() + dst.getDotLabel()).hashCode();
-
+        return hash;
     }
 
     @Override
     public boolean equals(Object o) {
 
+        if(this == o)
+            return true;
+
         if(!(o instanceof Transition))
             return false;
 
         Transition t = (Transition)o;
 
-        return this.src.equals(t.src) && this.dst.equals(t.dst);
+        return this.hash == t.hash && this.src.equals(t.src) && this.dst
+                .equals(t.dst);
     }
 
 
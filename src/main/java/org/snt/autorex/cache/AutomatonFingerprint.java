@@ -0,0 +1,149 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.cache;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A canonical encoding of the minimal deterministic automaton of a regular
+ * language. Two automata have equal fingerprints if and only if they accept
+ * the same language.
+ *
+ * The states of the minimal automaton are numbered in breadth-first order
+ * with the transitions of every state sorted by character range. The
+ * encoding is the sequence of (accept flag, number of transitions,
+ * (min, max, target)*) records of all states in that order.
+ */
+public final class AutomatonFingerprint {
+
+    private final int[] code;
+    private final int hash;
+
+    private AutomatonFingerprint(int[] code) {
+        this.code = code;
+        this.hash = Arrays.hashCode(code);
+    }
+
+    /**
+     * compute the fingerprint of an arbitrary automaton; a is not modified
+     * @param a automaton
+     * @return the fingerprint of the language accepted by a
+     */
+    public static AutomatonFingerprint of(Automaton a) {
+        Automaton m = a.clone();
+        m.minimize();
+        return ofMinimal(m);
+    }
+
+    /**
+     * compute the fingerprint of an automaton that is already minimal;
+     * adjacent ranges with the same target are merged on the fly, hence a
+     * is not modified
+     * @param a a minimal deterministic automaton
+     * @return the fingerprint of the language accepted by a
+     */
+    public static AutomatonFingerprint ofMinimal(Automaton a) {
+        List<State> order = new ArrayList<>();
+        Map<State, Integer> number = new HashMap<>();
+        State init = a.getInitialState();
+        order.add(init);
+        number.put(init, 0);
+
+        int[] code = new int[16];
+        int len = 0;
+        List<Transition> trans = new ArrayList<>();
+        for (int i = 0; i < order.size(); i++) {
+            State s = order.get(i);
+            trans.clear();
+            for (Transition t : s.getSortedTransitions(false)) {
+                int k = trans.size() - 1;
+                if (k >= 0 && trans.get(k).getDest() == t.getDest() && t
+                        .getMin() <= trans.get(k).getMax() + 1) {
+                    Transition p = trans.get(k);
+                    trans.set(k, new Transition(p.getMin(), (char) Math.max(p
+                            .getMax(), t.getMax()), p.getDest()));
+                } else {
+                    trans.add(t);
+                }
+            }
+            if (len + 2 + 3 * trans.size() > code.length)
+                code = Arrays.copyOf(code, Math.max(code.length * 2, len + 2 +
+                        3 * trans.size()));
+            code[len++] = s.isAccept() ? 1 : 0;
+            code[len++] = trans.size();
+            for (Transition t : trans) {
+                Integer n = number.get(t.getDest());
+                if (n == null) {
+                    n = order.size();
+                    number.put(t.getDest(), n);
+                    order.add(t.getDest());
+                }
+                code[len++] = t.getMin();
+                code[len++] = t.getMax();
+                code[len++] = n;
+            }
+        }
+        return new AutomatonFingerprint(Arrays.copyOf(code, len));
+    }
+
+    /**
+     * @return the number of ints of the canonical encoding
+     */
+    public int length() {
+        return code.length;
+    }
+
+    /**
+     * @return a copy of the canonical encoding
+     */
+    public int[] getCode() {
+        return code.clone();
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof AutomatonFingerprint))
+            return false;
+        AutomatonFingerprint f = (AutomatonFingerprint) o;
+        return hash == f.hash && Arrays.equals(code, f.code);
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.cache;
+
+import org.snt.autorex.LabelTranslator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-memory regex cache that evicts the least recently used entries
+ * once the number of entries or their overall weight exceeds a bound.
+ * The weight of an entry is an estimate of its size in bytes.
+ */
+public class LruRegexCache implements RegexCache {
+
+    // rough per entry overhead of map node, key and strings
+    private static final long ENTRY_OVERHEAD = 128;
+
+    private final int maxEntries;
+    private final long maxWeight;
+
+    private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>
+            (16, 0.75f, true);
+    private long weight = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param maxEntries maximal number of cached regular expressions
+     * @param maxWeight maximal overall weight in bytes
+     */
+    public LruRegexCache(int maxEntries, long maxWeight) {
+        if (maxEntries <= 0 || maxWeight <= 0)
+            throw new IllegalArgumentException("cache bounds must be positive");
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    public LruRegexCache(int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized String get(AutomatonFingerprint fp, LabelTranslator
+            ltrans) {
+        String ret = entries.get(new Key(fp, ltrans));
+        if (ret == null)
+            misses++;
+        else
+            hits++;
+        return ret;
+    }
+
+    @Override
+    public synchronized void put(AutomatonFingerprint fp, LabelTranslator
+            ltrans, String regex) {
+        Key k = new Key(fp, ltrans);
+        String old = entries.put(k, regex);
+        if (old != null)
+            weight -= getWeight(k, old);
+        weight += getWeight(k, regex);
+
+        Iterator<Map.Entry<Key, String>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && it
+                .hasNext()) {
+            Map.Entry<Key, String> e = it.next();
+            weight -= getWeight(e.getKey(), e.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static long getWeight(Key k, String regex) {
+        return ENTRY_OVERHEAD + 4L * k.fp.length() + 2L * regex.length();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated overall size of the cached entries in bytes
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    private static final class Key {
+        private final AutomatonFingerprint fp;
+        private final LabelTranslator ltrans;
+
+        Key(AutomatonFingerprint fp, LabelTranslator ltrans) {
+            this.fp = fp;
+            this.ltrans = ltrans;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * fp.hashCode() + ltrans.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return fp.equals(k.fp) && ltrans.equals(k.ltrans);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.autorex.LabelTranslator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent regex cache backed by an append-only memory-mapped file.
+ *
+ * The file starts with a header (magic, version, end of the last record)
+ * followed by records of the form
+ * (record length, checksum, translator id length, fingerprint length,
+ * regex length, translator id, fingerprint, regex). The checksum is the
+ * CRC32 of everything after it. The pages of the mapping may reach the disk
+ * in any order, hence a crash can leave the end offset pointing past a
+ * record that was not written completely. When the file is opened, all
+ * records are verified, the end offset is moved back before the first one
+ * that does not match its checksum and the bytes after it are zeroed. The
+ * file keeps its length, the space is reused by new records. Entries are
+ * only durable after {@link #flush()} or {@link #close()}.
+ *
+ * The index from (translator, fingerprint hash) to record offsets is
+ * rebuilt when the file is opened. Lookups compare the stored key and
+ * decode the regex straight from the mapping. Translators are identified
+ * by {@link LabelTranslator#getPersistentId()}; the regular expressions of
+ * translators without an id are neither looked up nor stored. The file is
+ * limited to 2GB; entries that do not fit anymore are not stored.
+ *
+ * The store holds an exclusive lock on the file while it is open, hence a
+ * file can only be used by a single store of a single process at a time.
+ */
+public class MappedRegexStore implements RegexCache, Closeable {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(MappedRegexStore.class);
+
+    private static final int MAGIC = 0x41525843;
+    private static final int VERSION = 2;
+    private static final int HEADER = 16;
+    private static final int END_OFFSET = 8;
+    private static final int RECORD_HEADER = 20;
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private MappedByteBuffer buffer;
+    private int end;
+
+    private final Map<Integer, long[]> index = new HashMap<>();
+    private int size = 0;
+
+    /**
+     * open or create a store
+     * @param file the backing file
+     * @throws IOException if the file cannot be mapped, is not a store or
+     * is in use by another store
+     */
+    public MappedRegexStore(Path file) throws IOException {
+        this(file, 1 << 20);
+    }
+
+    /**
+     * open or create a store
+     * @param file the backing file
+     * @param initialCapacity initial size of the mapping in bytes
+     * @throws IOException if the file cannot be mapped, is not a store or
+     * is in use by another store
+     */
+    public MappedRegexStore(Path file, int initialCapacity) throws
+            IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        try {
+            this.lock = tryLock(channel);
+            if (lock == null)
+                throw new IOException("regex store is in use: " + file);
+            long len = channel.size();
+            if (len > Integer.MAX_VALUE)
+                throw new IOException("store is too large: " + file);
+            map((int) Math.max(len, Math.max(initialCapacity, HEADER)));
+            if (len == 0) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putLong(END_OFFSET, HEADER);
+            } else if (len < HEADER || buffer.getInt(0) != MAGIC || buffer
+                    .getInt(4) != VERSION) {
+                throw new IOException("not a regex store: " + file);
+            }
+            long e = buffer.getLong(END_OFFSET);
+            end = (int) Math.max(HEADER, Math.min(e, buffer.capacity()));
+            buildIndex();
+            if (end != e) {
+                LOGGER.warn("discarding the records of regex store {} " +
+                        "between bytes {} and {}", file, end, e);
+                discardTail(e);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // locked by another store of this process
+            return null;
+        }
+    }
+
+    private void map(int capacity) throws IOException {
+        // the previous mapping is only unmapped by the garbage collector,
+        // hence its changes are written before it is replaced
+        if (buffer != null)
+            buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    /**
+     * zero the bytes from end to the given old end and store the new end
+     */
+    private void discardTail(long oldEnd) {
+        int to = (int) Math.min(oldEnd, buffer.capacity());
+        for (int p = end; p < to; p++)
+            buffer.put(p, (byte) 0);
+        buffer.putLong(END_OFFSET, end);
+        buffer.force();
+    }
+
+    /**
+     * index all the records up to the first one that is not valid, which
+     * becomes the new end
+     */
+    private void buildIndex() {
+        int pos = HEADER;
+        while (pos < end && isValid(pos)) {
+            int tlen = buffer.getInt(pos + 8);
+            int flen = buffer.getInt(pos + 12);
+            int hash = getKeyHash(readHash(pos + RECORD_HEADER + tlen, flen),
+                    readString(pos + RECORD_HEADER, tlen).hashCode());
+            addToIndex(hash, pos);
+            pos += 4 + buffer.getInt(pos);
+        }
+        end = pos;
+    }
+
+    private boolean isValid(int pos) {
+        if (end - pos < RECORD_HEADER)
+            return false;
+        long len = buffer.getInt(pos);
+        long tlen = buffer.getInt(pos + 8);
+        long flen = buffer.getInt(pos + 12);
+        long rlen = buffer.getInt(pos + 16);
+        if (tlen < 0 || flen < 0 || rlen < 0 || len > end - pos - 4 || len !=
+                RECORD_HEADER - 4 + tlen + 4 * flen + rlen)
+            return false;
+        return buffer.getInt(pos + 4) == checksum(pos, (int) len);
+    }
+
+    /**
+     * @return the CRC32 of the record at pos after the checksum
+     */
+    private int checksum(int pos, int len) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(pos + 8);
+        b.limit(pos + 4 + len);
+        CRC32 crc = new CRC32();
+        crc.update(b);
+        return (int) crc.getValue();
+    }
+
+    private int readHash(int pos, int flen) {
+        int[] code = new int[flen];
+        for (int i = 0; i < flen; i++)
+            code[i] = buffer.getInt(pos + 4 * i);
+        return Arrays.hashCode(code);
+    }
+
+    private String readString(int pos, int len) {
+        ByteBuffer b = buffer.duplicate();
+        b.position(pos);
+        b.limit(pos + len);
+        return StandardCharsets.UTF_8.decode(b).toString();
+    }
+
+    private static int getKeyHash(int fpHash, int translatorHash) {
+        return 31 * fpHash + translatorHash;
+    }
+
+    private void addToIndex(int hash, long pos) {
+        long[] offsets = index.get(hash);
+        if (offsets == null) {
+            offsets = new long[]{pos};
+        } else {
+            offsets = Arrays.copyOf(offsets, offsets.length + 1);
+            offsets[offsets.length - 1] = pos;
+        }
+        index.put(hash, offsets);
+        size++;
+    }
+
+    private int find(AutomatonFingerprint fp, String tid) {
+        long[] offsets = index.get(getKeyHash(fp.hashCode(), tid.hashCode()));
+        if (offsets == null)
+            return -1;
+        int[] code = fp.getCode();
+        byte[] tbytes = tid.getBytes(StandardCharsets.UTF_8);
+        for (long o : offsets) {
+            int pos = (int) o;
+            if (matches(pos, tbytes, code))
+                return pos;
+        }
+        return -1;
+    }
+
+    private boolean matches(int pos, byte[] tid, int[] code) {
+        if (buffer.getInt(pos + 8) != tid.length || buffer.getInt(pos + 12) !=
+                code.length)
+            return false;
+        int p = pos + RECORD_HEADER;
+        for (byte b : tid) {
+            if (buffer.get(p++) != b)
+                return false;
+        }
+        for (int c : code) {
+            if (buffer.getInt(p) != c)
+                return false;
+            p += 4;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized String get(AutomatonFingerprint fp, LabelTranslator
+            ltrans) {
+        String tid = ltrans.getPersistentId();
+        int pos = tid != null ? find(fp, tid) : -1;
+        if (pos < 0)
+            return null;
+        int tlen = buffer.getInt(pos + 8);
+        int flen = buffer.getInt(pos + 12);
+        int rlen = buffer.getInt(pos + 16);
+        return readString(pos + RECORD_HEADER + tlen + 4 * flen, rlen);
+    }
+
+    @Override
+    public synchronized void put(AutomatonFingerprint fp, LabelTranslator
+            ltrans, String regex) {
+        String tid = ltrans.getPersistentId();
+        if (tid == null || find(fp, tid) >= 0)
+            return;
+
+        byte[] tbytes = tid.getBytes(StandardCharsets.UTF_8);
+        byte[] rbytes = regex.getBytes(StandardCharsets.UTF_8);
+        long len = (long) RECORD_HEADER + tbytes.length + 4L * fp.length() +
+                rbytes.length;
+        if (end + len > Integer.MAX_VALUE) {
+            LOGGER.warn("regex store is full, entry is not persisted");
+            return;
+        }
+        try {
+            ensureCapacity((int) (end + len));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int pos = end;
+        buffer.putInt(pos, (int) len - 4);
+        buffer.putInt(pos + 8, tbytes.length);
+        buffer.putInt(pos + 12, fp.length());
+        buffer.putInt(pos + 16, rbytes.length);
+        int p = pos + RECORD_HEADER;
+        ByteBuffer b = buffer.duplicate();
+        b.position(p);
+        b.put(tbytes);
+        for (int c : fp.getCode())
+            b.putInt(c);
+        b.put(rbytes);
+        buffer.putInt(pos + 4, checksum(pos, (int) len - 4));
+
+        end = (int) (pos + len);
+        buffer.putLong(END_OFFSET, end);
+        addToIndex(getKeyHash(fp.hashCode(), tid.hashCode()), pos);
+    }
+
+    private void ensureCapacity(int required) throws IOException {
+        if (required <= buffer.capacity())
+            return;
+        long cap = buffer.capacity();
+        while (cap < required)
+            cap *= 2;
+        map((int) Math.min(cap, Integer.MAX_VALUE));
+    }
+
+    /**
+     * @return the number of stored entries
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * write all changes to the storage device
+     */
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        // closing the channel releases the lock
+        channel.close();
+    }
+}
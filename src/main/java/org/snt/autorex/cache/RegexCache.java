@@ -0,0 +1,53 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.cache;
+
+import org.snt.autorex.LabelTranslator;
+
+/**
+ * A store for the regular expressions of already converted automata. The
+ * key is the fingerprint of the language together with the label
+ * translator that was used for the conversion.
+ */
+public interface RegexCache {
+
+    /**
+     * look up a regular expression
+     * @param fp fingerprint of the automaton
+     * @param ltrans label translator
+     * @return the cached regular expression or null
+     */
+    String get(AutomatonFingerprint fp, LabelTranslator ltrans);
+
+    /**
+     * store a regular expression
+     * @param fp fingerprint of the automaton
+     * @param ltrans label translator
+     * @param regex the regular expression for fp
+     */
+    void put(AutomatonFingerprint fp, LabelTranslator ltrans, String regex);
+}
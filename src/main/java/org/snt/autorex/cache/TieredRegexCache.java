@@ -0,0 +1,63 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.cache;
+
+import org.snt.autorex.LabelTranslator;
+
+/**
+ * Combines a fast first level cache, e.g., an {@link LruRegexCache}, with a
+ * larger second level, e.g., a {@link MappedRegexStore}. Hits in the second
+ * level are copied to the first level.
+ */
+public class TieredRegexCache implements RegexCache {
+
+    private final RegexCache first;
+    private final RegexCache second;
+
+    public TieredRegexCache(RegexCache first, RegexCache second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public String get(AutomatonFingerprint fp, LabelTranslator ltrans) {
+        String ret = first.get(fp, ltrans);
+        if (ret == null) {
+            ret = second.get(fp, ltrans);
+            if (ret != null)
+                first.put(fp, ltrans, ret);
+        }
+        return ret;
+    }
+
+    @Override
+    public void put(AutomatonFingerprint fp, LabelTranslator ltrans, String
+            regex) {
+        first.put(fp, ltrans, regex);
+        second.put(fp, ltrans, regex);
+    }
+}
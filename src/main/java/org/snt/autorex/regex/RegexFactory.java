@@ -0,0 +1,238 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.regex;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates hash-consed regular expression nodes, i.e., asking twice for the
+ * same expression yields the same object. A null argument denotes an absent
+ * label and is the neutral element of concatenation and union.
+ *
+ * Character classes are kept as bitsets of class ids so that the union of
+ * two classes is a bitwise or. The text of a class is only measured when
+ * the class is created; it is written when the expression is serialized.
+ */
+public class RegexFactory {
+
+    private final ConcurrentMap<RegexNode, RegexNode> nodes = new
+            ConcurrentHashMap<>();
+
+    private final ConcurrentMap<ClassKey, RegexNode> classes = new
+            ConcurrentHashMap<>();
+
+    private volatile boolean epsilonText = false;
+
+    private static final class ClassKey {
+        private final CharClassRenderer renderer;
+        private final long[] bits;
+        private final int hash;
+
+        ClassKey(CharClassRenderer renderer, long[] bits) {
+            this.renderer = renderer;
+            this.bits = bits;
+            this.hash = 31 * System.identityHashCode(renderer) + Arrays
+                    .hashCode(bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ClassKey))
+                return false;
+            ClassKey k = (ClassKey) o;
+            return renderer == k.renderer && Arrays.equals(bits, k.bits);
+        }
+    }
+
+    /**
+     * @return the number of distinct nodes created by this factory
+     */
+    public int size() {
+        return nodes.size() + classes.size();
+    }
+
+    /**
+     * the factory never concatenates the empty word, hence the string
+     * representation of its nodes can only contain .{0} terms if a leaf
+     * text does
+     * @return true if the text of a leaf contains .{0
+     */
+    public boolean hasEpsilonText() {
+        return epsilonText;
+    }
+
+    private void checkText(CharSequence text) {
+        if (epsilonText)
+            return;
+        for (int i = 0; i + 2 < text.length(); i++) {
+            if (text.charAt(i) == '.' && text.charAt(i + 1) == '{' && text
+                    .charAt(i + 2) == '0') {
+                epsilonText = true;
+                return;
+            }
+        }
+    }
+
+    public RegexNode epsilon() {
+        return RegexNode.EPSILON;
+    }
+
+    /**
+     * create a leaf node
+     * @param text regular expression text as produced by a label translator
+     * @return the corresponding leaf
+     */
+    public RegexNode literal(String text) {
+        checkText(text);
+        return intern(new RegexNode(RegexNode.Kind.LITERAL, text, null, null,
+                getPrecedence(text)));
+    }
+
+    /**
+     * create a character class leaf
+     * @param renderer turns the class ids into text
+     * @param bits a non-empty bitset of class ids
+     * @return the corresponding leaf
+     */
+    public RegexNode charClass(CharClassRenderer renderer, long[] bits) {
+        return classes.computeIfAbsent(new ClassKey(renderer, bits.clone()),
+                k -> {
+                    // the text is not kept, only its length and precedence
+                    StringBuilder sb = new StringBuilder();
+                    renderer.appendTo(sb, k.bits);
+                    checkText(sb);
+                    return new RegexNode(renderer, k.bits, sb.length(),
+                            getPrecedence(sb));
+                });
+    }
+
+    public RegexNode concat(RegexNode left, RegexNode right) {
+        if (left == null || left == RegexNode.EPSILON)
+            return right == null ? left : right;
+        if (right == null || right == RegexNode.EPSILON)
+            return left;
+        return intern(new RegexNode(RegexNode.Kind.CONCAT, null, left, right,
+                RegexNode.PREC_CONCAT));
+    }
+
+    public RegexNode union(RegexNode left, RegexNode right) {
+        if (left == null)
+            return right;
+        if (right == null || left == right)
+            return left;
+        // character classes in front of a union are merged
+        RegexNode lc = leadingClass(left);
+        RegexNode rc = leadingClass(right);
+        if (lc != null && rc != null && lc.getRenderer() == rc.getRenderer()) {
+            long[] l = lc.classes();
+            long[] r = rc.classes();
+            long[] bits = new long[Math.max(l.length, r.length)];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = (i < l.length ? l[i] : 0L) | (i < r.length ? r[i] :
+                        0L);
+            }
+            return union(charClass(lc.getRenderer(), bits), union(left == lc
+                    ? null : left.getRight(), right == rc ? null : right
+                    .getRight()));
+        }
+        return intern(new RegexNode(RegexNode.Kind.UNION, null, left, right,
+                RegexNode.PREC_UNION));
+    }
+
+    private static RegexNode leadingClass(RegexNode n) {
+        if (n.getKind() == RegexNode.Kind.CLASS)
+            return n;
+        if (n.getKind() == RegexNode.Kind.UNION && n.getLeft().getKind() ==
+                RegexNode.Kind.CLASS)
+            return n.getLeft();
+        return null;
+    }
+
+    public RegexNode star(RegexNode n) {
+        if (n == null || n.getKind() == RegexNode.Kind.EPSILON || n.getKind()
+                == RegexNode.Kind.STAR)
+            return n;
+        return intern(new RegexNode(RegexNode.Kind.STAR, null, n, null,
+                RegexNode.PREC_STAR));
+    }
+
+    private RegexNode intern(RegexNode n) {
+        RegexNode existing = nodes.putIfAbsent(n, n);
+        return existing != null ? existing : n;
+    }
+
+    /**
+     * figure out how strongly a piece of regular expression text binds
+     * @param s regular expression text
+     * @return the binding strength of s
+     */
+    static int getPrecedence(CharSequence s) {
+        int len = s.length();
+        if (len == 1 || (len == 2 && s.charAt(0) == '\\'))
+            return RegexNode.PREC_ATOM;
+
+        int depth = 0;
+        int atoms = 0;
+        boolean union = false;
+        boolean inClass = false;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i++;
+                if (depth == 0 && !inClass)
+                    atoms++;
+            } else if (inClass) {
+                inClass = c != ']';
+            } else if (c == '[') {
+                if (depth == 0)
+                    atoms++;
+                inClass = true;
+            } else if (c == '(') {
+                if (depth == 0)
+                    atoms++;
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0) {
+                if (c == '|')
+                    union = true;
+                else
+                    atoms++;
+            }
+        }
+        if (union)
+            return RegexNode.PREC_UNION;
+        return atoms == 1 ? RegexNode.PREC_ATOM : RegexNode.PREC_CONCAT;
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.regex;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * An immutable node of a regular expression syntax tree. Nodes are created
+ * and shared through a {@link RegexFactory} so that equal sub-expressions
+ * are represented by the very same object. The string representation is
+ * only created on demand.
+ */
+public final class RegexNode {
+
+    public enum Kind {
+        EPSILON,
+        LITERAL,
+        CLASS,
+        CONCAT,
+        UNION,
+        STAR
+    }
+
+    // binding strength of the string representation of a node
+    static final int PREC_UNION = 0;
+    static final int PREC_CONCAT = 1;
+    static final int PREC_STAR = 2;
+    static final int PREC_ATOM = 3;
+
+    public static final RegexNode EPSILON = new RegexNode(Kind.EPSILON,
+            ".{0}", null, null, PREC_STAR);
+
+    private final Kind kind;
+    private final String text;
+    private final RegexNode left;
+    private final RegexNode right;
+    private final int prec;
+    private final long length;
+    private final int hash;
+    private final CharClassRenderer renderer;
+    private final long[] classes;
+
+    RegexNode(Kind kind, String text, RegexNode left, RegexNode right, int
+            prec) {
+        this(kind, text, text != null ? text.length() : 0, left, right, prec,
+                null, null);
+    }
+
+    /**
+     * create a character class leaf; its text is rendered on demand
+     * @param textLength the length of the rendered text
+     */
+    RegexNode(CharClassRenderer renderer, long[] classes, int textLength, int
+            prec) {
+        this(Kind.CLASS, null, textLength, null, null, prec, renderer,
+                classes);
+    }
+
+    private RegexNode(Kind kind, String text, int textLength, RegexNode left,
+                      RegexNode right, int prec, CharClassRenderer renderer,
+                      long[] classes) {
+        this.kind = kind;
+        this.text = text;
+        this.left = left;
+        this.right = right;
+        this.prec = prec;
+        this.renderer = renderer;
+        this.classes = classes;
+
+        long len = textLength;
+        if (left != null)
+            len += left.length + (left.prec < minPrecOf(kind) ? 2 : 0);
+        if (right != null)
+            len += right.length + (right.prec < minPrecOf(kind) ? 2 : 0);
+        if (kind == Kind.UNION || kind == Kind.STAR)
+            len++;
+        this.length = len < 0 ? Long.MAX_VALUE : len;
+
+        int h = kind.hashCode();
+        h = 31 * h + (text != null ? text.hashCode() : 0);
+        h = 31 * h + (left != null ? left.hash : 0);
+        h = 31 * h + (right != null ? right.hash : 0);
+        h = 31 * h + Arrays.hashCode(classes);
+        this.hash = h;
+    }
+
+    /**
+     * the minimal binding strength the operands of a node of kind k need
+     * to have in order to be printed without parentheses
+     */
+    private static int minPrecOf(Kind k) {
+        switch (k) {
+            case CONCAT:
+                return PREC_CONCAT;
+            case STAR:
+                return PREC_ATOM;
+            default:
+                return PREC_UNION;
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the text of a literal or character class; the text of a
+     * class is rendered on every call
+     */
+    public String getText() {
+        return kind == Kind.CLASS ? renderer.render(classes) : text;
+    }
+
+    /**
+     * @return the bitset of class ids of a character class
+     */
+    public long[] getClasses() {
+        return classes != null ? classes.clone() : null;
+    }
+
+    CharClassRenderer getRenderer() {
+        return renderer;
+    }
+
+    long[] classes() {
+        return classes;
+    }
+
+    public RegexNode getLeft() {
+        return left;
+    }
+
+    public RegexNode getRight() {
+        return right;
+    }
+
+    /**
+     * @return the length of the string representation of this node
+     */
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * children are compared by reference because they are shared
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof RegexNode))
+            return false;
+        RegexNode n = (RegexNode) o;
+        return hash == n.hash && kind == n.kind && left == n.left && right ==
+                n.right && renderer == n.renderer && Arrays.equals(classes, n
+                .classes) && (text == null ? n.text == null : text.equals(n
+                .text));
+    }
+
+    /**
+     * append the string representation of this node to sb. The tree is
+     * traversed iteratively since concatenation chains can get very deep.
+     * @param sb the string builder to append to
+     */
+    public void appendTo(StringBuilder sb) {
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            Object o = stack.pop();
+            if (o instanceof String) {
+                sb.append((String) o);
+                continue;
+            }
+            RegexNode n = (RegexNode) o;
+            switch (n.kind) {
+                case EPSILON:
+                case LITERAL:
+                    sb.append(n.text);
+                    break;
+                case CLASS:
+                    n.renderer.appendTo(sb, n.classes);
+                    break;
+                case CONCAT:
+                    push(stack, n.right, PREC_CONCAT);
+                    push(stack, n.left, PREC_CONCAT);
+                    break;
+                case UNION:
+                    push(stack, n.right, PREC_UNION);
+                    stack.push("|");
+                    push(stack, n.left, PREC_UNION);
+                    break;
+                case STAR:
+                    stack.push("*");
+                    push(stack, n.left, PREC_ATOM);
+                    break;
+            }
+        }
+    }
+
+    private static void push(Deque<Object> stack, RegexNode n, int minPrec) {
+        if (n.prec < minPrec) {
+            stack.push(")");
+            stack.push(n);
+            stack.push("(");
+        } else {
+            stack.push(n);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendTo(sb);
+        return sb.toString();
+    }
+}
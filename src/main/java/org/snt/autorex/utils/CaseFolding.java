@@ -0,0 +1,207 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.utils;
+
+import java.util.Arrays;
+
+/**
+ * Simple case folding for intervals of characters of the basic
+ * multilingual plane. Two characters are case partners if they are
+ * related by upper, lower or title case mapping, e.g., k, K and the kelvin
+ * sign. The partners are kept in a table of runs: every character
+ * lo, lo + stride, ..., hi of a run has the partner c + delta, and the
+ * stride is 2 for the blocks in which upper and lower case alternate.
+ */
+public final class CaseFolding {
+
+    // runs sorted by lo; maxHi[i] is the maximum hi of the runs 0..i
+    private static final int[] LO;
+    private static final int[] HI;
+    private static final int[] DELTA;
+    private static final int[] STRIDE;
+    private static final int[] MAX_HI;
+
+    static {
+        int n = Character.MAX_VALUE + 1;
+
+        // the case classes as a union-find structure
+        int[] parent = new int[n];
+        for (int c = 0; c < n; c++)
+            parent[c] = c;
+        for (int c = 0; c < n; c++) {
+            union(parent, c, Character.toUpperCase((char) c));
+            union(parent, c, Character.toLowerCase((char) c));
+            union(parent, c, Character.toTitleCase((char) c));
+        }
+
+        // the members of every class in a linked list
+        int[] next = new int[n];
+        int[] head = new int[n];
+        Arrays.fill(head, -1);
+        for (int c = n - 1; c >= 0; c--) {
+            int r = find(parent, c);
+            next[c] = head[r];
+            head[r] = c;
+        }
+
+        // all pairs of partners ordered by delta and character
+        long[] pairs = new long[64];
+        int m = 0;
+        for (int c = 0; c < n; c++) {
+            for (int p = head[find(parent, c)]; p >= 0; p = next[p]) {
+                if (p == c)
+                    continue;
+                if (m == pairs.length)
+                    pairs = Arrays.copyOf(pairs, 2 * m);
+                pairs[m++] = ((long) (p - c + n) << 32) | c;
+            }
+        }
+        Arrays.sort(pairs, 0, m);
+
+        int[][] runs = new int[m][];
+        int k = 0;
+        for (int i = 0; i < m; i++) {
+            int delta = (int) (pairs[i] >>> 32) - n;
+            int c = (int) pairs[i];
+            // a run of a single character does not have a stride yet
+            int[] r = k > 0 ? runs[k - 1] : null;
+            if (r != null && r[2] == delta && (r[3] == 0 ? c - r[1] <= 2 : c
+                    - r[1] == r[3])) {
+                r[3] = c - r[1];
+                r[1] = c;
+            } else {
+                runs[k++] = new int[]{c, c, delta, 0};
+            }
+        }
+        runs = Arrays.copyOf(runs, k);
+        Arrays.sort(runs, (a, b) -> Integer.compare(a[0], b[0]));
+
+        LO = new int[k];
+        HI = new int[k];
+        DELTA = new int[k];
+        STRIDE = new int[k];
+        MAX_HI = new int[k];
+        for (int i = 0; i < k; i++) {
+            LO[i] = runs[i][0];
+            HI[i] = runs[i][1];
+            DELTA[i] = runs[i][2];
+            STRIDE[i] = Math.max(runs[i][3], 1);
+            MAX_HI[i] = Math.max(HI[i], i > 0 ? MAX_HI[i - 1] : 0);
+        }
+    }
+
+    private CaseFolding() {
+    }
+
+    private static int find(int[] parent, int c) {
+        while (parent[c] != c) {
+            parent[c] = parent[parent[c]];
+            c = parent[c];
+        }
+        return c;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra != rb)
+            parent[Math.max(ra, rb)] = Math.min(ra, rb);
+    }
+
+    /**
+     * @return the number of runs in the table
+     */
+    static int size() {
+        return LO.length;
+    }
+
+    /**
+     * fold the characters min to max
+     * @param min the lower bound
+     * @param max the upper bound
+     * @return the sorted, disjoint and non-adjacent intervals of all the
+     * characters from min to max and their case partners as pairs of lower
+     * and upper bounds
+     */
+    public static int[] fold(char min, char max) {
+        int[] iv = new int[]{min, max};
+        int n = 1;
+
+        // the last run that starts at or before max
+        int i = Arrays.binarySearch(LO, max);
+        i = i >= 0 ? i : -i - 2;
+        while (i < LO.length - 1 && LO[i + 1] == max)
+            i++;
+
+        for (; i >= 0 && MAX_HI[i] >= min; i--) {
+            if (HI[i] < min)
+                continue;
+            int s = STRIDE[i];
+            int c0 = Math.max(LO[i], min);
+            c0 += (s - (c0 - LO[i]) % s) % s;
+            int c1 = Math.min(HI[i], max);
+            if (c0 > c1)
+                continue;
+            if (s == 1) {
+                iv = add(iv, n++, c0 + DELTA[i], c1 + DELTA[i]);
+            } else {
+                for (int c = c0; c <= c1; c += s)
+                    iv = add(iv, n++, c + DELTA[i], c + DELTA[i]);
+            }
+        }
+        return n == 1 ? iv : merge(iv, n);
+    }
+
+    private static int[] add(int[] iv, int n, int lo, int hi) {
+        if (2 * n + 2 > iv.length)
+            iv = Arrays.copyOf(iv, 2 * iv.length + 2);
+        iv[2 * n] = lo;
+        iv[2 * n + 1] = hi;
+        return iv;
+    }
+
+    private static int[] merge(int[] iv, int n) {
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = ((long) iv[2 * i] << 32) | iv[2 * i + 1];
+        Arrays.sort(keys);
+        int[] ret = new int[2 * n];
+        int k = 0;
+        for (long key : keys) {
+            int lo = (int) (key >>> 32);
+            int hi = (int) key;
+            if (k > 0 && lo <= ret[2 * k - 1] + 1) {
+                ret[2 * k - 1] = Math.max(ret[2 * k - 1], hi);
+            } else {
+                ret[2 * k] = lo;
+                ret[2 * k + 1] = hi;
+                k++;
+            }
+        }
+        return Arrays.copyOf(ret, 2 * k);
+    }
+}
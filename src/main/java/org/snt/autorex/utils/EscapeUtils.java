@@ -26,22 +26,66 @@
 
 package org.snt.autorex.utils;
 
-import java.util.Set;
-import java.util.stream.Stream;
-
-import static java.util.stream.Collectors.toSet;
-
 /**
  * escaping helper class
  */
 public final class EscapeUtils {
 
-    private static final Set<Character> SPECIAL = Stream.of('+', '{', '}', '(', ')', '[', ']', '&', '^',
-            '-', '?', '*', '\"', '$', '<', '>', '.', '|', '#').collect(toSet());
+    // bitsets over all characters
+    private static final long[] SPECIAL = new long[1 << 10];
+    private static final long[] CLASS_SPECIAL = new long[1 << 10];
+
+    static {
+        for (char c : "+{}()[]&^-?*\"$<>.|#~@\\".toCharArray())
+            SPECIAL[c >>> 6] |= 1L << c;
+        for (char c : "\\[]-^".toCharArray())
+            CLASS_SPECIAL[c >>> 6] |= 1L << c;
+    }
 
     private EscapeUtils() {
     }
 
+    /**
+     * @param c a character
+     * @return true if c has to be escaped outside of character classes
+     */
+    public static boolean isSpecial(char c) {
+        return (SPECIAL[c >>> 6] & (1L << c)) != 0L;
+    }
+
+    /**
+     * @param c a character
+     * @return true if c has to be escaped inside of character classes
+     */
+    public static boolean isClassSpecial(char c) {
+        return (CLASS_SPECIAL[c >>> 6] & (1L << c)) != 0L;
+    }
+
+    /**
+     * append character c to sb and escape it if necessary
+     *
+     * @param sb the builder to append to
+     * @param c the character
+     */
+    public static void appendCharacter(StringBuilder sb, char c) {
+        if (isSpecial(c))
+            sb.append('\\');
+        sb.append(c);
+    }
+
+    /**
+     * append character c to sb so that it can be used inside of a
+     * character class
+     *
+     * @param sb the builder to append to
+     * @param c the character
+     */
+    public static void appendClassCharacter(StringBuilder sb, char c) {
+        if (isClassSpecial(c))
+            sb.append('\\');
+        sb.append(c);
+    }
+
     /**
      * escape special character in a string with a backslash
      *
@@ -52,14 +96,9 @@ public final class EscapeUtils {
         if (s == null)
             return "";
 
-        StringBuilder out = new StringBuilder();
-        for (char c : s.toCharArray()) {
-            if (SPECIAL.contains(c)) {
-                out.append("\\").append(c);
-            } else {
-                out.append(c);
-            }
-        }
+        StringBuilder out = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++)
+            appendCharacter(out, s.charAt(i));
         return out.toString();
     }
 
@@ -73,17 +112,13 @@ public final class EscapeUtils {
         if (s == null)
             return "";
 
-        StringBuilder out = new StringBuilder();
-        char pred = ' ';
-        for (char c : s.toCharArray()) {
-            if (pred == '\\' && SPECIAL.contains(c)) {
-                out.deleteCharAt(out.length() - 1);
-                out.append(c);
-            } else {
-                out.append(c);
-            }
-            pred = c;
+        StringBuilder out = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length() && isSpecial(s.charAt(i + 1)))
+                c = s.charAt(++i);
+            out.append(c);
         }
         return out.toString();
     }
-}
\ No newline at end of file
+}
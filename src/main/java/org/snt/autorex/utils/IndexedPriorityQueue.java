@@ -0,0 +1,180 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * a binary min-heap whose priorities can be changed after insertion
+ *
+ * @param <T> class of the queued items
+ */
+public class IndexedPriorityQueue<T> {
+
+    private Object[] items = new Object[16];
+    private long[] costs = new long[16];
+    private int size = 0;
+
+    private final Map<T, Integer> position = new HashMap<>();
+    private final Comparator<? super T> tieBreaker;
+
+    /**
+     * @param tieBreaker decides between items with equal cost
+     */
+    public IndexedPriorityQueue(Comparator<? super T> tieBreaker) {
+        this.tieBreaker = tieBreaker;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(T item) {
+        return position.containsKey(item);
+    }
+
+    /**
+     * insert an item or change the cost of an item that is already queued
+     * @param item item to queue
+     * @param cost the priority of the item - lower is polled first
+     */
+    public void put(T item, long cost) {
+        Integer pos = position.get(item);
+        if (pos != null) {
+            long old = costs[pos];
+            costs[pos] = cost;
+            if (cost < old) {
+                siftUp(pos);
+            } else {
+                siftDown(pos);
+            }
+            return;
+        }
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            costs = Arrays.copyOf(costs, size * 2);
+        }
+        items[size] = item;
+        costs[size] = cost;
+        position.put(item, size);
+        siftUp(size++);
+    }
+
+    /**
+     * remove the item with the lowest cost
+     * @return the item with the lowest cost or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if (size == 0)
+            return null;
+        T top = (T) items[0];
+        position.remove(top);
+        size--;
+        if (size > 0) {
+            items[0] = items[size];
+            costs[0] = costs[size];
+            position.put((T) items[0], 0);
+            siftDown(0);
+        }
+        items[size] = null;
+        return top;
+    }
+
+    /**
+     * remove an arbitrary item from the queue
+     * @param item item to remove
+     * @return true if the item was queued
+     */
+    @SuppressWarnings("unchecked")
+    public boolean remove(T item) {
+        Integer pos = position.remove(item);
+        if (pos == null)
+            return false;
+        size--;
+        if (pos < size) {
+            items[pos] = items[size];
+            costs[pos] = costs[size];
+            position.put((T) items[pos], pos);
+            siftDown(pos);
+            siftUp(pos);
+        }
+        items[size] = null;
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean less(int i, int j) {
+        if (costs[i] != costs[j])
+            return costs[i] < costs[j];
+        return tieBreaker.compare((T) items[i], (T) items[j]) < 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void swap(int i, int j) {
+        Object it = items[i];
+        long c = costs[i];
+        items[i] = items[j];
+        costs[i] = costs[j];
+        items[j] = it;
+        costs[j] = c;
+        position.put((T) items[i], i);
+        position.put((T) items[j], j);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(i, parent))
+                return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= size)
+                return;
+            int min = l;
+            if (l + 1 < size && less(l + 1, l))
+                min = l + 1;
+            if (!less(min, i))
+                return;
+            swap(i, min);
+            i = min;
+        }
+    }
+}
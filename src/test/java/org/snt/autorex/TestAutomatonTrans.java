@@ -36,6 +36,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snt.autorex.AutomatonTrans.Kind;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.snt.autorex.AutomatonTrans.Kind.*;
 
 
@@ -166,4 +169,111 @@ public class TestAutomatonTrans {
             Assert.assertFalse(len.auto.run(m));
         }
     }
+
+    @Test
+    public void testCaseFolding() {
+        AutomatonTrans az = new AutomatonTrans(new RegExp("[a-z]+")
+                .toAutomaton());
+        az.convertToCamelCaseAutomaton();
+        Assert.assertTrue(az.auto.run("HeLLo"));
+        // kelvin sign and long s fold onto k and s
+        Assert.assertTrue(az.auto.run("\u212A\u017F"));
+        Assert.assertFalse(az.auto.run("h3llo"));
+
+        // final sigma, capital and small sigma are one class
+        AutomatonTrans sigma = new AutomatonTrans(new RegExp("\u03C2")
+                .toAutomaton());
+        sigma.convertToCamelCaseAutomaton();
+        Assert.assertTrue(sigma.auto.run("\u03A3"));
+        Assert.assertTrue(sigma.auto.run("\u03C3"));
+
+        AutomatonTrans sz = new AutomatonTrans(new RegExp("\u1E9E")
+                .toAutomaton());
+        sz.convertToCamelCaseAutomaton();
+        Assert.assertTrue(sz.auto.run("\u00DF"));
+
+        // folding merges the branches of (a|A)x|ay, hence determinize
+        AutomatonTrans nd = new AutomatonTrans(new RegExp("Ax|ay")
+                .toAutomaton());
+        nd.convertToCamelCaseAutomaton();
+        Assert.assertTrue(nd.auto.isDeterministic());
+        Assert.assertTrue(nd.auto.run("aX"));
+        Assert.assertTrue(nd.auto.run("AY"));
+    }
+
+    @Test
+    public void testLenAutomaton() {
+        String [] rexps = {"hello my name is Alice", "(ab|cd)*x[0-9]{1,3}",
+                "(aaa)*|(aaaaa)*", "a{3,7}(bb)*", "(a|b)*abb", "[0-9]{2,4}",
+                "(aa|aaa)+", "(ab){0,10}c?d", "a*"};
+        for (String r : rexps) {
+            Automaton a = new RegExp(r).toAutomaton();
+            Automaton len = Autorex.getLenAutomaton(a);
+
+            // replace all the labels and minimize
+            Automaton ref = a.clone();
+            for (dk.brics.automaton.State s : ref.getStates()) {
+                List<Transition> ts = new ArrayList<>(s.getTransitions());
+                s.getTransitions().clear();
+                for (Transition t : ts)
+                    s.addTransition(new Transition(Character.MIN_VALUE,
+                            Character.MAX_VALUE, t.getDest()));
+            }
+            ref.setDeterministic(false);
+            ref.minimize();
+
+            Assert.assertTrue(r, len.equals(ref));
+            Assert.assertEquals(r, ref.getNumberOfStates(), len
+                    .getNumberOfStates());
+        }
+        Assert.assertTrue(Autorex.getLenAutomaton(Automaton.makeEmpty())
+                .isEmpty());
+        Assert.assertTrue(Autorex.getLenAutomaton(new RegExp("abc(#)*")
+                .toAutomaton()).run("xyz"));
+    }
+
+    @Test
+    public void testLengthSet() {
+        String [] rexps = {"hello my name is Alice", "(ab|cd)*x[0-9]{1,3}",
+                "(aaa)*|(aaaaa)*", "a{3,7}(bb)*", "(aa|aaa)+", "#", "a*"};
+        for (String r : rexps) {
+            Automaton a = new RegExp(r).toAutomaton();
+            LengthSet l = Autorex.getLengthSet(a);
+            for (int n = 0; n < 60; n++) {
+                boolean ref = !a.intersection(Automaton.makeAnyChar()
+                        .repeat(n, n)).isEmpty();
+                Assert.assertEquals(r + " " + n, ref, l.contains(n));
+                int next = l.next(n);
+                Assert.assertTrue(next < 0 || next >= n && l.contains(next));
+                for (int k = n; k < next; k++)
+                    Assert.assertFalse(l.contains(k));
+            }
+        }
+
+        LengthSet l = Autorex.getLengthSet(new RegExp("(aaa)*|(aaaaa)*")
+                .toAutomaton());
+        Assert.assertEquals("{0+15k, 3+15k, 5+15k, 6+15k, 9+15k, 10+15k, " +
+                "12+15k}", l.toString());
+        Assert.assertEquals(0, l.getMin());
+        Assert.assertEquals(Integer.MAX_VALUE, l.getMax());
+        Assert.assertEquals(15, l.getPeriod());
+        Assert.assertFalse(l.isFinite());
+
+        l = Autorex.getLengthSet(new RegExp("[0-9]{2,4}").toAutomaton());
+        Assert.assertEquals(2, l.getMin());
+        Assert.assertEquals(4, l.getMax());
+        Assert.assertTrue(l.isFinite());
+        Assert.assertTrue(Autorex.getLengthSet(Automaton.makeEmpty())
+                .isEmpty());
+
+        AutomatonTrans at = new AutomatonTrans("(ab)+c");
+        LengthSet odd = at.getLengthSet();
+        Assert.assertSame(odd, at.getLengthSet());
+        Assert.assertEquals(odd, Autorex.getLengthSet(new RegExp("x(..)+")
+                .toAutomaton()));
+        at.convertToLenAutomaton();
+        Assert.assertEquals(odd, at.getLengthSet());
+        at.convertToSubstringAutomaton();
+        Assert.assertNotEquals(odd, at.getLengthSet());
+    }
 }
@@ -28,11 +28,20 @@ package org.snt.autorex;
 
 import dk.brics.automaton.Automaton;
 import dk.brics.automaton.RegExp;
+import dk.brics.automaton.Transition;
+import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
 
 public class TestAutorex {
 
@@ -76,4 +85,172 @@ public class TestAutorex {
 
         Assert.assertTrue(ccas.run(s.toUpperCase()));
     }
+
+    @Test
+    public void testSortedStrings() {
+        List<String> words = new ArrayList<>();
+        for (String w : new String[]{"", "tap", "taps", "top", "tops",
+                "x-ray", "x-rays"})
+            words.add(w);
+        String s = Autorex.getRegexFromSortedStrings(words);
+        Assert.assertEquals("t[ao]p(s|.{0})|x\\-ray(s|.{0})|.{0}", s);
+        Automaton a = Automaton.makeEmpty();
+        for (String w : words)
+            a = a.union(Automaton.makeString(w));
+        Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+
+        Assert.assertEquals("#", Autorex.getRegexFromSortedStrings(new
+                ArrayList<String>()));
+        Assert.assertEquals("ab", Autorex.getRegexFromSortedStrings(Stream
+                .of("ab", "ab")));
+
+        try {
+            Autorex.getRegexFromSortedStrings(Stream.of("b", "a"));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            Autorex.getRegexFromSortedStrings(Stream.of("ab", "a"));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInfixRegex() {
+        String [] rexps = {"hello my name is Alice", "(ab|cd)*x[0-9]{1,3}",
+                "(a|b)*abb", "x+", "(ab){0,10}c?d"};
+        for (String r : rexps) {
+            Automaton a = new RegExp(r).toAutomaton();
+            Assert.assertTrue(new RegExp(Autorex.getSubstringRegex(a))
+                    .toAutomaton().equals(Autorex.getSubstringAutomaton(a)));
+            Assert.assertTrue(new RegExp(Autorex.getSuffixRegex(a))
+                    .toAutomaton().equals(Autorex.getSuffixAutomaton(a)));
+        }
+        // the initial state loops, hence bbb must not be a suffix
+        Automaton a = new RegExp("(a|b)*abb").toAutomaton();
+        Assert.assertFalse(Autorex.getSuffixAutomaton(a).run("bbb"));
+        Assert.assertEquals("(ab|b)c|c", Autorex.getSuffixRegex(new RegExp
+                ("abc").toAutomaton()));
+        Assert.assertEquals("#", Autorex.getSubstringRegex(Automaton
+                .makeEmpty()));
+    }
+
+    @Test
+    public void testSuffixAutomaton() {
+        Random rnd = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            List<String> words = new ArrayList<>();
+            for (int n = rnd.nextInt(5); n >= 0; n--)
+                words.add(RandomStringUtils.random(rnd.nextInt(8), 0, 0,
+                        false, false, "ab".toCharArray(), rnd));
+
+            Automaton substr = Automaton.makeEmptyString();
+            Automaton sfx = Automaton.makeEmpty();
+            for (String w : words) {
+                for (int k = 0; k <= w.length(); k++) {
+                    for (int l = k; l <= w.length(); l++)
+                        substr = substr.union(Automaton.makeString(w
+                                .substring(k, l)));
+                    if (k < w.length() || w.isEmpty())
+                        sfx = sfx.union(Automaton.makeString(w.substring(k)));
+                }
+            }
+
+            Automaton a = Autorex.getSubstringAutomatonFromStrings(words);
+            Automaton b = Autorex.getSuffixAutomatonFromStrings(words);
+            Assert.assertTrue(a.isDeterministic());
+            Assert.assertTrue(words.toString(), substr.equals(a));
+            Assert.assertTrue(words.toString(), sfx.equals(b));
+        }
+
+        // finite languages with the empty word keep it
+        for (String r : new String[]{"a?", "(a)?", "a|b?", "([a-c][0-9])?",
+                "ab|cd"}) {
+            Automaton a = new RegExp(r).toAutomaton();
+            Assert.assertTrue(r, new RegExp(Autorex.getSuffixRegex(a))
+                    .toAutomaton().equals(Autorex.getSuffixAutomaton(a)));
+            Assert.assertTrue(r, new RegExp(Autorex.getSubstringRegex(a))
+                    .toAutomaton().equals(Autorex.getSubstringAutomaton(a)));
+        }
+        Assert.assertTrue(Autorex.getSuffixAutomaton(new RegExp("a?")
+                .toAutomaton()).run(""));
+
+        // the suffix automaton of a single word is minimal
+        SuffixAutomatonBuilder b = new SuffixAutomatonBuilder();
+        b.add("abcbc");
+        Automaton min = b.toSuffixAutomaton().clone();
+        min.minimize();
+        Assert.assertEquals(min.getNumberOfStates(), b.getNumberOfStates());
+    }
+
+    @Test
+    public void testBatchConversion() {
+        List<Automaton> automata = new ArrayList<>();
+        automata.add(new RegExp("(abc)+[0-9]{1,3}[dg]*").toAutomaton());
+        automata.add(new RegExp("x[a-z]*").toAutomaton());
+        automata.add(new RegExp("[0-9]{1,3}test[a-f]+").toAutomaton());
+
+        // a translator that fails for every automaton containing an x
+        LabelTranslator ltrans = new DefaultLabelTranslator() {
+            @Override
+            public String getTransitionString(Transition t) {
+                if (t.getMin() <= 'x' && t.getMax() >= 'x')
+                    throw new IllegalStateException("x");
+                return super.getTransitionString(t);
+            }
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<ConversionResult> res = Autorex.getRegexesFromAutomata
+                    (automata, ltrans, pool);
+            Assert.assertEquals(3, res.size());
+            Assert.assertTrue(res.get(0).isSuccess());
+            Assert.assertFalse(res.get(1).isSuccess());
+            Assert.assertTrue(res.get(1).getError() instanceof
+                    IllegalStateException);
+            Assert.assertTrue(res.get(2).isSuccess());
+            for (ConversionResult r : res) {
+                Assert.assertSame(automata.get(res.indexOf(r)), r
+                        .getAutomaton());
+            }
+            Assert.assertEquals(Autorex.getRegexFromAutomaton(automata.get
+                    (0), ltrans), res.get(0).getRegex());
+        } finally {
+            pool.shutdown();
+        }
+
+        for (ConversionResult r : Autorex.getRegexesFromAutomata(automata)) {
+            Assert.assertTrue(r.isSuccess());
+            Assert.assertTrue(new RegExp(r.getRegex()).toAutomaton().equals(r
+                    .getAutomaton()));
+        }
+    }
+
+    @Test
+    public void testConversionStats() {
+        Automaton a = new RegExp("(ab|cd)*x[0-9]{1,3}").toAutomaton();
+        ConversionStats stats = new ConversionStats();
+
+        String s = Autorex.getRegexFromAutomaton(a, new
+                DefaultLabelTranslator(), DefaultEliminationStrategy.WEIGHT,
+                stats);
+
+        Assert.assertEquals(Autorex.getRegexFromAutomaton(a), s);
+        Assert.assertEquals(1, stats.getConversions());
+        Assert.assertTrue(stats.getStatesEliminated() > 0);
+        // the peak includes the edges of the first state that is removed
+        Assert.assertTrue(stats.getPeakEdges() >= Converter.INSTANCE
+                .getGnfaFromAutomaton(a).edgeSet().size());
+        Assert.assertTrue(stats.getFinalLabelLength() >= s.length());
+        Assert.assertTrue(stats.getPeakLabelLength() >= stats
+                .getFinalLabelLength());
+        Assert.assertTrue(stats.getLabelNodes() > 0);
+        Assert.assertTrue(stats.getPhaseNanos(ConversionListener.Phase
+                .ELIMINATE) > 0);
+        LOGGER.debug(stats.toString());
+    }
 }
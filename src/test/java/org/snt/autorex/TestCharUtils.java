@@ -26,8 +26,10 @@
 
 package org.snt.autorex;
 
+import dk.brics.automaton.RegExp;
 import org.junit.Assert;
 import org.junit.Test;
+import org.snt.autorex.utils.EscapeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,4 +52,21 @@ public class TestCharUtils {
             Assert.assertFalse(CharUtils.isDigit(c));
         }
     }
+
+    @Test
+    public void testEscaping() {
+        String s = "a\\b~@(c)[d-e]";
+        String esc = EscapeUtils.escapeSpecialCharacters(s);
+        Assert.assertEquals("a\\\\b\\~\\@\\(c\\)\\[d\\-e\\]", esc);
+        Assert.assertEquals(s, EscapeUtils.unescapeSpecialCharacters(esc));
+        Assert.assertTrue(new RegExp(esc).toAutomaton().run(s));
+
+        DefaultLabelTranslator lt = new DefaultLabelTranslator();
+        StringBuilder sb = new StringBuilder("x");
+        lt.appendLabel(sb, new char[]{'\\'}, new char[]{'\\'}, 1);
+        lt.appendLabel(sb, new char[]{'-', 'a'}, new char[]{'-', 'c'}, 2);
+        lt.appendLabel(sb, new char[]{Character.MIN_VALUE, 'c'}, new char[]{
+                'a', Character.MAX_VALUE}, 2);
+        Assert.assertEquals("x\\\\[\\-a-c][^b]", sb.toString());
+    }
 }
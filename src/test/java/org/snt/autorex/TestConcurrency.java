@@ -0,0 +1,138 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestConcurrency {
+
+    private static final String[] REXPS = {
+            "aa+",
+            "(ab){0,10}c*d",
+            "[a-z]{1,3}test[0-9]+",
+            "([a-z0-9]+de)*",
+            "(ab*(bac)*)d+(ay)*",
+            "(abc)+[0-9]{1,3}[dg]*",
+            "((ta)+)*d",
+            "(ab|cd|ef)*x(a|c|e){3}"
+    };
+
+    @Test
+    public void testConcurrentConversion() throws Exception {
+        List<Automaton> automata = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+
+        for (String r : REXPS) {
+            Automaton a = new RegExp(r).toAutomaton();
+            a.minimize();
+            automata.add(a);
+            expected.add(Autorex.getRegexFromAutomaton(a));
+        }
+
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<List<String>>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads * 4; t++) {
+                tasks.add(() -> {
+                    List<String> ret = new ArrayList<>();
+                    for (int i = 0; i < 25; i++) {
+                        for (Automaton a : automata) {
+                            ret.add(Autorex.getRegexFromAutomaton(a));
+                        }
+                    }
+                    return ret;
+                });
+            }
+            for (Future<List<String>> f : pool.invokeAll(tasks)) {
+                List<String> res = f.get();
+                for (int i = 0; i < res.size(); i++) {
+                    Assert.assertEquals(expected.get(i % expected.size()),
+                            res.get(i));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < automata.size(); i++) {
+            Assert.assertTrue(new RegExp(expected.get(i)).toAutomaton()
+                    .equals(automata.get(i)));
+        }
+    }
+
+    @Test
+    public void testConcurrentRendering() throws Exception {
+        Automaton a = new RegExp("([a-z0-9]+de)*x[^b-k][b-fq-z]{1,3}")
+                .toAutomaton();
+        Alphabet alpha = new Alphabet(a.getStates(), new
+                DefaultLabelTranslator());
+        List<long[]> sets = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (State s : a.getStates()) {
+            for (Transition t : s.getTransitions()) {
+                long[] set = alpha.newSet();
+                alpha.addClasses(set, t);
+                sets.add(set);
+                expected.add(alpha.render(set));
+            }
+        }
+
+        // one alphabet renders the labels of all the threads
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        int k = i % sets.size();
+                        if (!expected.get(k).equals(alpha.render(sets.get(k))))
+                            return false;
+                    }
+                    return true;
+                });
+            }
+            for (Future<Boolean> f : pool.invokeAll(tasks))
+                Assert.assertTrue(f.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
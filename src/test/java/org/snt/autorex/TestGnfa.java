@@ -0,0 +1,89 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.autograph.State;
+import org.snt.autorex.autograph.Transition;
+
+public class TestGnfa {
+
+    @Test
+    public void testAdjacency() {
+        Gnfa g = new Gnfa();
+        State s = g.createState(State.Kind.START);
+        State a = g.createState(State.Kind.NORMAL);
+        State b = g.createState(State.Kind.NORMAL);
+        State e = g.createState(State.Kind.ACCEPT);
+
+        g.addEdge(new Transition(s, a, Transition.Kind.EPSILON));
+        g.addEdge(new Transition(a, b, Transition.Kind.MATCH, g.getFactory()
+                .literal("x")));
+        g.addEdge(new Transition(b, a, Transition.Kind.MATCH, g.getFactory()
+                .literal("y")));
+        g.addEdge(new Transition(b, b, Transition.Kind.MATCH, g.getFactory()
+                .literal("z")));
+        g.addEdge(new Transition(b, e, Transition.Kind.EPSILON));
+
+        // there is at most one edge between two states
+        Assert.assertFalse(g.addEdge(b, e, new Transition(b, e, Transition
+                .Kind.MATCH)));
+
+        Assert.assertEquals(4, g.vertexSet().size());
+        Assert.assertEquals(5, g.edgeSet().size());
+        Assert.assertSame(s, g.getStart());
+        Assert.assertSame(e, g.getEnd());
+
+        int vb = g.indexOf(b);
+        Assert.assertEquals(2, g.inDegreeOf(vb));
+        Assert.assertEquals(3, g.outDegreeOf(vb));
+        Assert.assertEquals(1, g.outDegreeOf(vb, Transition.Kind.EPSILON));
+        Assert.assertEquals("z", g.getEdge(vb, vb).getLabel().toString());
+        Assert.assertEquals(2, g.getConnectedInStates(b).size());
+        Assert.assertEquals(1, g.getIncomingEdgesOfKind(e, Transition.Kind
+                .EPSILON).size());
+        Assert.assertTrue(g.outgoingEdgesOf(a).contains(g.getEdge(a, b)));
+
+        g.removeVertex(b);
+        Assert.assertEquals(3, g.vertexSet().size());
+        Assert.assertEquals(1, g.edgeSet().size());
+        Assert.assertEquals(-1, g.indexOf(b));
+        Assert.assertEquals(0, g.outDegreeOf(a));
+        Assert.assertEquals(0, g.inDegreeOf(e));
+
+        // freed slots are reused
+        State c = g.createState(State.Kind.NORMAL);
+        g.addEdge(new Transition(a, c, Transition.Kind.MATCH, g.getFactory()
+                .literal("w")));
+        Assert.assertEquals(vb, g.indexOf(c));
+        Assert.assertEquals(2, g.edgeSet().size());
+        Assert.assertNull(g.getEdge(c, a));
+        Assert.assertNotNull(g.getEdge(a, c));
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.Transition;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.snt.autorex.cache.AutomatonFingerprint;
+import org.snt.autorex.cache.LruRegexCache;
+import org.snt.autorex.cache.MappedRegexStore;
+import org.snt.autorex.cache.RegexCache;
+import org.snt.autorex.cache.TieredRegexCache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class TestRegexCache {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testFingerprint() {
+        Automaton a = new RegExp("aa*").toAutomaton();
+        Automaton b = new RegExp("a+|aaa").toAutomaton();
+        Automaton c = new RegExp("a*").toAutomaton();
+
+        Assert.assertEquals(AutomatonFingerprint.of(a), AutomatonFingerprint
+                .of(b));
+        Assert.assertNotEquals(AutomatonFingerprint.of(a), AutomatonFingerprint
+                .of(c));
+        Assert.assertEquals(AutomatonFingerprint.of(a.union(b)),
+                AutomatonFingerprint.of(a));
+
+        // adjacent ranges are merged without touching the automaton
+        dk.brics.automaton.State s0 = new dk.brics.automaton.State();
+        dk.brics.automaton.State s1 = new dk.brics.automaton.State();
+        s1.setAccept(true);
+        s0.addTransition(new Transition('a', 'b', s1));
+        s0.addTransition(new Transition('c', 'd', s1));
+        Automaton d = new Automaton();
+        d.setInitialState(s0);
+        Assert.assertEquals(AutomatonFingerprint.of(new RegExp("[a-d]")
+                .toAutomaton()), AutomatonFingerprint.ofMinimal(d));
+        Assert.assertEquals(2, s0.getTransitions().size());
+    }
+
+    @Test
+    public void testLookup() {
+        LruRegexCache cache = new LruRegexCache(10);
+        LabelTranslator lt = new DefaultLabelTranslator();
+
+        Automaton a = new RegExp("(ab){0,10}c+d").toAutomaton();
+        Automaton b = new RegExp("(ab){0,10}c*cd").toAutomaton();
+
+        String s0 = Autorex.getRegexFromAutomaton(a, lt, cache);
+        Assert.assertTrue(new RegExp(s0).toAutomaton().equals(a));
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+
+        Assert.assertEquals(s0, Autorex.getRegexFromAutomaton(b, new
+                DefaultLabelTranslator(), cache));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.size());
+
+        // another translator yields another entry
+        LabelTranslator other = new LabelTranslator() {
+            @Override
+            public String getTransitionString(Transition t) {
+                return lt.getTransitionString(t);
+            }
+        };
+        Autorex.getRegexFromAutomaton(a, other, cache);
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        LabelTranslator lt = new DefaultLabelTranslator();
+        LruRegexCache cache = new LruRegexCache(2);
+
+        Automaton a = new RegExp("a+").toAutomaton();
+        Automaton b = new RegExp("b+").toAutomaton();
+        Automaton c = new RegExp("c+").toAutomaton();
+
+        Autorex.getRegexFromAutomaton(a, lt, cache);
+        Autorex.getRegexFromAutomaton(b, lt, cache);
+        // a is now the most recently used entry
+        Autorex.getRegexFromAutomaton(a, lt, cache);
+        Autorex.getRegexFromAutomaton(c, lt, cache);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertNotNull(cache.get(AutomatonFingerprint.of(a), lt));
+        Assert.assertNull(cache.get(AutomatonFingerprint.of(b), lt));
+
+        long w = cache.getWeight();
+        Assert.assertTrue(w > 0);
+        LruRegexCache small = new LruRegexCache(100, w);
+        Autorex.getRegexFromAutomaton(a, lt, small);
+        Autorex.getRegexFromAutomaton(b, lt, small);
+        Autorex.getRegexFromAutomaton(c, lt, small);
+        Assert.assertTrue(small.getWeight() <= w);
+        Assert.assertTrue(small.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void testMappedStore() throws IOException {
+        LabelTranslator lt = new DefaultLabelTranslator();
+        Path file = tmp.getRoot().toPath().resolve("regex.store");
+
+        Automaton a = new RegExp("(ab){0,10}c+d").toAutomaton();
+        Automaton b = new RegExp("[0-9]{2,4}x*").toAutomaton();
+
+        String sa, sb;
+        // a small mapping has to grow while storing
+        try (MappedRegexStore store = new MappedRegexStore(file, 32)) {
+            sa = Autorex.getRegexFromAutomaton(a, lt, store);
+            sb = Autorex.getRegexFromAutomaton(b, lt, store);
+            Autorex.getRegexFromAutomaton(a, lt, store);
+            Assert.assertEquals(2, store.size());
+        }
+
+        try (MappedRegexStore store = new MappedRegexStore(file)) {
+            Assert.assertEquals(2, store.size());
+            Assert.assertEquals(sa, store.get(AutomatonFingerprint.of(a), lt));
+            Assert.assertEquals(sb, store.get(AutomatonFingerprint.of(b), lt));
+            Assert.assertNull(store.get(AutomatonFingerprint.of(a.union(b)),
+                    lt));
+
+            LruRegexCache lru = new LruRegexCache(10);
+            RegexCache tiered = new TieredRegexCache(lru, store);
+            Assert.assertEquals(sa, Autorex.getRegexFromAutomaton(a, lt,
+                    tiered));
+            Assert.assertEquals(1, lru.size());
+        }
+    }
+
+    @Test
+    public void testMappedStoreRecovery() throws IOException {
+        LabelTranslator lt = new DefaultLabelTranslator();
+        Path file = tmp.getRoot().toPath().resolve("recovery.store");
+
+        Automaton a = new RegExp("(ab){0,10}c+d").toAutomaton();
+        Automaton b = new RegExp("[0-9]{2,4}x*").toAutomaton();
+        String sa;
+        try (MappedRegexStore store = new MappedRegexStore(file, 32)) {
+            sa = Autorex.getRegexFromAutomaton(a, lt, store);
+            Autorex.getRegexFromAutomaton(b, lt, store);
+
+            // a file is only used by one store at a time
+            try {
+                new MappedRegexStore(file).close();
+                Assert.fail();
+            } catch (IOException e) {
+                // expected
+            }
+
+            // translators without a stable id are not persisted
+            Autorex.getRegexFromAutomaton(a, new DefaultLabelTranslator() {
+            }, store);
+            Assert.assertEquals(2, store.size());
+        }
+
+        // damage the last byte of the second record
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption
+                .WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[]{'#'}), readEnd(file) - 1);
+        }
+
+        long oldEnd = readEnd(file);
+        try (MappedRegexStore store = new MappedRegexStore(file)) {
+            Assert.assertEquals(1, store.size());
+            Assert.assertEquals(sa, store.get(AutomatonFingerprint.of(a), lt));
+            Assert.assertNull(store.get(AutomatonFingerprint.of(b), lt));
+        }
+
+        // the damaged record does not stay on disk
+        long end = readEnd(file);
+        Assert.assertTrue(end < oldEnd);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption
+                .READ)) {
+            ByteBuffer tail = ByteBuffer.allocate((int) (oldEnd - end));
+            ch.read(tail, end);
+            for (byte x : tail.array())
+                Assert.assertEquals(0, x);
+        }
+
+        try (MappedRegexStore store = new MappedRegexStore(file)) {
+            Assert.assertEquals(1, store.size());
+            Autorex.getRegexFromAutomaton(b, lt, store);
+        }
+        try (MappedRegexStore store = new MappedRegexStore(file)) {
+            Assert.assertEquals(2, store.size());
+        }
+    }
+
+    /**
+     * @return the end offset in the header of a store file
+     */
+    private static long readEnd(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption
+                .READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            ch.read(header, 8);
+            header.flip();
+            return header.getLong();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMappedStoreRejectsForeignFile() throws IOException {
+        Path file = tmp.newFile("foreign").toPath();
+        Files.write(file, "no regex store at all".getBytes("UTF-8"));
+        new MappedRegexStore(file).close();
+    }
+}
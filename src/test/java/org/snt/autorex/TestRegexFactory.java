@@ -0,0 +1,156 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import org.junit.Assert;
+import org.junit.Test;
+import org.snt.autorex.regex.CharClassRenderer;
+import org.snt.autorex.regex.RegexFactory;
+import org.snt.autorex.regex.RegexNode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class TestRegexFactory {
+
+    @Test
+    public void testHashConsing() {
+        RegexFactory f = new RegexFactory();
+        RegexNode a = f.literal("a");
+        RegexNode b = f.literal("b");
+
+        Assert.assertSame(a, f.literal("a"));
+        Assert.assertSame(f.concat(a, b), f.concat(f.literal("a"), b));
+        Assert.assertSame(f.star(f.union(a, b)), f.star(f.union(a, b)));
+        Assert.assertNotSame(f.concat(a, b), f.concat(b, a));
+        Assert.assertSame(a, f.concat(f.epsilon(), a));
+        Assert.assertSame(a, f.union(a, null));
+    }
+
+    @Test
+    public void testSerialization() {
+        RegexFactory f = new RegexFactory();
+        RegexNode a = f.literal("a");
+        RegexNode b = f.literal("b");
+        RegexNode c = f.literal("[c-d]");
+
+        Assert.assertEquals("ab|[c-d]", f.union(f.concat(a, b), c).toString());
+        Assert.assertEquals("a(b|[c-d])", f.concat(a, f.union(b, c)).toString());
+        Assert.assertEquals("(ab)*[c-d]*", f.concat(f.star(f.concat(a, b)),
+                f.star(c)).toString());
+        Assert.assertEquals("(ab)*", f.star(f.literal("ab")).toString());
+        Assert.assertEquals("(a|b)*", f.star(f.literal("a|b")).toString());
+
+        RegexNode n = f.union(f.concat(a, f.star(b)), c);
+        Assert.assertEquals(n.toString().length(), n.length());
+    }
+
+    @Test
+    public void testCharClasses() {
+        RegexFactory f = new RegexFactory();
+        // class i stands for the character 'a' + i
+        CharClassRenderer r = bits -> {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < 64; i++) {
+                if ((bits[0] & (1L << i)) != 0)
+                    sb.append((char) ('a' + i));
+            }
+            return sb.append(']').toString();
+        };
+        RegexNode a = f.charClass(r, new long[]{1L});
+        RegexNode b = f.charClass(r, new long[]{2L});
+        RegexNode x = f.literal("x");
+
+        Assert.assertSame(a, f.charClass(r, new long[]{1L}));
+        Assert.assertSame(f.charClass(r, new long[]{3L}), f.union(a, b));
+        Assert.assertEquals("[ab]|x", f.union(a, f.union(b, x)).toString());
+        Assert.assertEquals("[ab]x", f.concat(f.union(b, a), x).toString());
+
+        // classes are measured once and rendered on serialization
+        int [] calls = new int[1];
+        CharClassRenderer counting = bits -> {
+            calls[0]++;
+            return r.render(bits);
+        };
+        RegexNode c = f.charClass(counting, new long[]{4L});
+        Assert.assertSame(c, f.charClass(counting, new long[]{4L}));
+        Assert.assertEquals(1, calls[0]);
+        Assert.assertEquals(3, c.length());
+        Assert.assertEquals("[c]*", f.star(c).toString());
+        Assert.assertEquals(2, calls[0]);
+    }
+
+    @Test
+    public void testAlphabetPartition() {
+        // the intersection leaves many overlapping ranges
+        Automaton a = new RegExp("([a-m]|[f-z]|[0-5])*").toAutomaton()
+                .intersection(new RegExp("([c-q]|[3-9]|_)*").toAutomaton());
+        String s = Autorex.getRegexFromAutomaton(a);
+        Assert.assertEquals("[3-5c-q]*", s);
+        Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+    }
+
+    @Test
+    public void testExactPartition() {
+        Random rnd = new Random(3);
+        for (int it = 0; it < 100; it++) {
+            List<State> states = new ArrayList<>();
+            for (int k = 0; k < 4; k++)
+                states.add(new State());
+            for (int k = rnd.nextInt(12); k >= 0; k--) {
+                char lo = (char) ('a' + rnd.nextInt(20));
+                char hi = (char) (lo + rnd.nextInt(6));
+                states.get(rnd.nextInt(4)).addTransition(new Transition(lo,
+                        hi, states.get(rnd.nextInt(4))));
+            }
+            List<Transition> ts = new ArrayList<>();
+            for (State s : states)
+                ts.addAll(s.getTransitions());
+
+            // the distinct sets of transitions that cover a character
+            Set<Set<Integer>> sets = new HashSet<>();
+            for (char c = 'a'; c < 'z'; c++) {
+                Set<Integer> cover = new HashSet<>();
+                for (int k = 0; k < ts.size(); k++) {
+                    if (ts.get(k).getMin() <= c && c <= ts.get(k).getMax())
+                        cover.add(k);
+                }
+                if (!cover.isEmpty())
+                    sets.add(cover);
+            }
+            Alphabet alpha = new Alphabet(states, new DefaultLabelTranslator());
+            Assert.assertEquals(sets.size(), alpha.size());
+        }
+    }
+}
@@ -31,6 +31,7 @@ import dk.brics.automaton.RegExp;
 import dk.brics.automaton.Transition;
 import org.junit.Assert;
 import org.junit.Test;
+import org.snt.autorex.autograph.Gnfa;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -110,6 +111,194 @@ public class TestStateElimination {
         Assert.assertTrue(compareRexp("\\(test\\)") == true);
     }
 
+    @Test
+    public void testCharacterClasses() {
+        Assert.assertTrue(compareRexp("[^a]"));
+        Assert.assertTrue(compareRexp("[a-cx-z0-9_]+"));
+        Assert.assertTrue(compareRexp("[^\\-\\]]x"));
+        Assert.assertTrue(compareRexp("[\\[\\]\\^\\-\\\\]*"));
+        Assert.assertEquals("[^0-9A-Za-z]", Autorex.getRegexFromAutomaton(new
+                RegExp("[^0-9a-zA-Z]").toAutomaton()));
+        Assert.assertEquals("[0-9_a-cx-z]", Autorex.getRegexFromAutomaton(new
+                RegExp("[a-cx-z0-9_]").toAutomaton()));
+    }
+
+    @Test
+    public void testReduction() {
+        Automaton a = new RegExp("ab*c(de)*f").toAutomaton();
+        a.minimize();
+        Gnfa g = Converter.INSTANCE.getGnfaFromAutomaton(a);
+        StateEliminator.INSTANCE.handleTrivialCases(g);
+        // chains and simple loops are reduced completely
+        Assert.assertEquals(2, g.vertexSet().size());
+        Assert.assertEquals(1, g.edgeSet().size());
+        String s = g.edgeSet().iterator().next().getLabel().toString();
+        Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+
+        // parallel paths are united
+        a = new RegExp("x(ab|cd)y").toAutomaton();
+        g = Converter.INSTANCE.getGnfaFromAutomaton(a);
+        StateEliminator.INSTANCE.handleTrivialCases(g);
+        Assert.assertEquals(1, g.edgeSet().size());
+        s = g.edgeSet().iterator().next().getLabel().toString();
+        Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+    }
+
+    @Test
+    public void testParallelElimination() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 4; i++)
+            sb.append("x([ab]*a[ab][ab])y");
+        Automaton a = new RegExp(sb.toString()).toAutomaton();
+        a.minimize();
+
+        Gnfa g = Converter.INSTANCE.getGnfaFromAutomaton(a);
+        StateEliminator.INSTANCE.handleTrivialCases(g);
+        long sccs = g.getStronglyConnectedComponents().stream().filter(c ->
+                c.size() > 1).count();
+        Assert.assertEquals(4, sccs);
+
+        LabelTranslator lt = new DefaultLabelTranslator();
+        String s = Autorex.getRegexFromAutomaton(a, lt, Engine.SCC_PARALLEL);
+        Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+        Assert.assertEquals(s, Autorex.getRegexFromAutomaton(a, lt, Engine
+                .SCC_PARALLEL));
+    }
+
+    @Test
+    public void testMatrixElimination() {
+        String [] rexps = {"aa+", "(ab){0,10}c*d", "((ta)+)*d", "[13d]d*",
+                "(ab*(bac)*)d+(ay)*", "[a-z]{1,3}test[0-9]+", "[ab]*a[ab]" +
+                "[ab]", "(a|b(c|d)*e)*f"};
+        LabelTranslator lt = new DefaultLabelTranslator();
+        for (String r : rexps) {
+            Automaton a = new RegExp(r).toAutomaton();
+            String s = Autorex.getRegexFromAutomaton(a, lt, Engine.MATRIX);
+            Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+        }
+
+        // the last three positions of a de bruijn like automaton
+        Automaton a = new RegExp("[ab]*a[ab][ab]").toAutomaton();
+        a.minimize();
+        Gnfa g = Converter.INSTANCE.getGnfaFromAutomaton(a);
+        Assert.assertEquals(Engine.MATRIX, Engine.select(g));
+        Assert.assertEquals(Engine.GRAPH, Engine.select(Converter.INSTANCE
+                .getGnfaFromAutomaton(new RegExp("abcdefghij").toAutomaton())));
+        String s = Autorex.getRegexFromAutomaton(a, lt, Engine.AUTO);
+        Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+    }
+
+    @Test
+    public void testEquationSolver() {
+        String [] rexps = {"aa+", "(ab){0,10}c*d", "((ta)+)*d", "[13d]d*",
+                "(ab*(bac)*)d+(ay)*", "[a-z]{1,3}test[0-9]+", "(a|b(c|d)*e)*f",
+                "(ab|cd)*(e|f)?(gh)*i?"};
+        for (String r : rexps) {
+            Automaton a = new RegExp(r).toAutomaton();
+            for (EquationSolver.Order o : EquationSolver.Order.values()) {
+                Gnfa g = Converter.INSTANCE.getGnfaFromAutomaton(a);
+                String s = EquationSolver.INSTANCE.solve(g, o,
+                        ConversionListener.NOOP);
+                Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+            }
+        }
+
+        // the accepting states of a trie keep their suffixes factored out
+        Automaton a = new RegExp("ab|ac|b").toAutomaton();
+        for (dk.brics.automaton.State s : a.getStates())
+            s.setAccept(true);
+        a.minimize();
+        Assert.assertEquals("a([bc]|.{0})|b|.{0}", Autorex
+                .getRegexFromAutomaton(a, new DefaultLabelTranslator(), Engine
+                        .EQUATIONS));
+    }
+
+    @Test
+    public void testAcyclic() {
+        LabelTranslator lt = new DefaultLabelTranslator();
+        AcyclicConverter ac = AcyclicConverter.INSTANCE;
+        String [] rexps = {"abc[0-9]([0-9dg])?", "(ab){0,10}c?d", "[a-z]{1,3}" +
+                "test[0-9]", "(hello|help|helm|world|word)s?", "[^a]"};
+        for (String r : rexps) {
+            Automaton a = new RegExp(r).toAutomaton();
+            String s = ac.getRegexFromAutomaton(a, lt);
+            Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+        }
+        Assert.assertEquals("x[ab]y", ac.getRegexFromAutomaton(new RegExp
+                ("xay|xby").toAutomaton(), lt));
+
+        // a cycle among the dead states does not matter
+        Automaton a = new RegExp("ab").toAutomaton();
+        dk.brics.automaton.State dead = new dk.brics.automaton.State();
+        dead.addTransition(new Transition('c', dead));
+        a.getInitialState().addTransition(new Transition('c', dead));
+        Assert.assertEquals("ab", ac.getRegexFromAutomaton(a, lt));
+
+        // only AUTO takes the fast path, chosen engines are kept
+        a = new RegExp("(hello|help|helm|world|word)s?").toAutomaton();
+        Assert.assertEquals(ac.getRegexFromAutomaton(a, lt), Autorex
+                .getRegexFromAutomaton(a, lt, Engine.AUTO));
+        Assert.assertEquals(StateEliminator.INSTANCE.eliminate(Converter
+                .INSTANCE.getGnfaFromAutomaton(a, lt)), Autorex
+                .getRegexFromAutomaton(a, lt, Engine.GRAPH));
+        Assert.assertEquals(EquationSolver.INSTANCE.solve(Converter.INSTANCE
+                .getGnfaFromAutomaton(a, lt)), Autorex.getRegexFromAutomaton
+                (a, lt, Engine.EQUATIONS));
+
+        // bounded repetitions share many suffixes, the default path and
+        // the strategies eliminate states
+        for (String r : new String[]{"([0-9]{1,3}\\.){3}[0-9]{1,3}",
+                "([a-f][0-9]?){6}"}) {
+            a = new RegExp(r).toAutomaton();
+            String g = Autorex.getRegexFromAutomaton(a, lt, Engine.GRAPH);
+            Assert.assertTrue(new RegExp(g).toAutomaton().equals(a));
+            Assert.assertTrue(g.length() < ac.getRegexFromAutomaton(a, lt)
+                    .length());
+            Assert.assertEquals(g, Autorex.getRegexFromAutomaton(a));
+            for (DefaultEliminationStrategy st : DefaultEliminationStrategy
+                    .values()) {
+                Assert.assertEquals(StateEliminator.INSTANCE.eliminate
+                        (Converter.INSTANCE.getGnfaFromAutomaton(a, lt), st),
+                        Autorex.getRegexFromAutomaton(a, lt, st));
+            }
+        }
+
+        Assert.assertNull(ac.getRegexFromAutomaton(new RegExp("a+")
+                .toAutomaton(), lt));
+        Assert.assertEquals(AcyclicConverter.EMPTY, Autorex
+                .getRegexFromAutomaton(Automaton.makeEmpty()));
+        Assert.assertEquals(AcyclicConverter.EMPTY, Autorex
+                .getRegexFromAutomaton(new RegExp("a+&b+").toAutomaton()));
+        Assert.assertEquals(".{0}", Autorex.getRegexFromAutomaton(Automaton
+                .makeEmptyString()));
+    }
+
+    @Test
+    public void testPostProcess() {
+        StateEliminator se = StateEliminator.INSTANCE;
+        String [][] cases = {
+                {"(ab)(.{0})", "(ab)"},
+                {"(ab).{0}c", "(ab)c"},
+                {"(.{0})(ab)|c", "(ab)|c"},
+                {"x.{0,0}(ab)", "x(ab)"},
+                {"a*(.{0})", "a*"},
+                {"(ab)|.{0}", "(ab)|.{0}"},
+                {"(ab).{0}*", "(ab).{0}*"},
+                {"\\(.{0}(a)", "\\((a)"},
+                {"\\).{0}", "\\).{0}"},
+                {"[.{0}(]", "[.{0}(]"},
+                {"abc", "abc"}
+        };
+        for (String [] c : cases) {
+            String r = se.postProcess(c[0]);
+            Assert.assertEquals(c[1], r);
+            Assert.assertTrue(new RegExp(c[0]).toAutomaton().equals(new
+                    RegExp(r).toAutomaton()));
+        }
+        String s = "abc";
+        Assert.assertSame(s, se.postProcess(s));
+    }
+
     @Test
     public void testLabelTranslator() {
         Automaton a = new RegExp("ab.*").toAutomaton();
@@ -138,4 +327,21 @@ public class TestStateElimination {
         Automaton a0new = r0new.toAutomaton();
         Assert.assertTrue(a0new.equals(d));
     }
+
+    @Test
+    public void testEliminationStrategies() {
+        Automaton a = new RegExp("(abc)+[0-9]{1,3}[dg]*").toAutomaton();
+        Automaton b = new RegExp("([a-z]{1,3}test[0-9]+)|(x(yz)*)").toAutomaton();
+        Automaton c = a.union(b).concatenate(a);
+        c.minimize();
+
+        for (DefaultEliminationStrategy s : DefaultEliminationStrategy.values()) {
+            String s0 = Autorex.getRegexFromAutomaton(c, new
+                    DefaultLabelTranslator(), s);
+            Assert.assertTrue(new RegExp(s0).toAutomaton().equals(c));
+            // the result must not depend on the hash order of the states
+            Assert.assertEquals(s0, Autorex.getRegexFromAutomaton(c, new
+                    DefaultLabelTranslator(), s));
+        }
+    }
 }